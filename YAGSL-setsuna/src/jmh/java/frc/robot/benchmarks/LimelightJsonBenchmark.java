@@ -0,0 +1,65 @@
+package frc.robot.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightResults;
+import frc.robot.lib.limelight.LimelightResultsParser;
+import frc.robot.lib.limelight.LimelightResultsParser.Section;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//
+// LimelightのJSON結果の解析のベンチマーク。
+// 今までのObjectMapperによる全体のデータバインドと、ストリーミング解析(全セクション/Fiducialのみ)を比べる。
+// サンプルはsrc/jmh/resources/limelight/にあるLLOSのjson出力と同じ形式のデータ。
+//
+
+@State(Scope.Thread)
+public class LimelightJsonBenchmark {
+    @Param({"fiducial_3tags.json", "detector_8_fiducial_2.json", "no_targets.json"})
+    public String sample;
+
+    private String json;
+    private ObjectMapper mapper;
+    private LimelightResultsParser allSectionsParser;
+    private LimelightResultsParser fiducialParser;
+    private LimelightResults results;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/limelight/" + sample)) {
+            json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        // LimelightHelpers.getLatestResultsと同じ設定
+        mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        allSectionsParser = new LimelightResultsParser();
+        fiducialParser = new LimelightResultsParser(EnumSet.of(Section.FIDUCIAL));
+        results = new LimelightResults();
+    }
+
+    @Benchmark
+    public LimelightResults databind() throws IOException {
+        return mapper.readValue(json, LimelightResults.class);
+    }
+
+    @Benchmark
+    public LimelightResults streamingAllSections() {
+        allSectionsParser.parse(json, results);
+        return results;
+    }
+
+    @Benchmark
+    public LimelightResults streamingFiducialOnly() {
+        fiducialParser.parse(json, results);
+        return results;
+    }
+}
@@ -0,0 +1,58 @@
+package frc.robot.benchmarks;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.RobotState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//
+// RobotStateのホットパスのベンチマーク。
+//
+
+@State(Scope.Thread)
+public class RobotStateBenchmark {
+    private static final double kDt = 1.0 / 250.0;
+
+    private RobotState robotState;
+    private ChassisSpeeds speeds;
+    private double time;
+
+    @Setup
+    public void setup() {
+        robotState = new RobotState(estimate -> {}, true);
+        speeds = new ChassisSpeeds(1.0, 0.5, 0.25);
+        time = 0.0;
+        for (int i = 0; i < 250; i++) {
+            addMeasurements();
+        }
+    }
+
+    private void addMeasurements() {
+        time += kDt;
+        robotState.addDriveMotionMeasurements(
+                time, 0.01, 0.02, Math.sin(time), 0.03, 0.04, 0.5, 0.6,
+                speeds, speeds, speeds, speeds, speeds);
+    }
+
+    @Benchmark
+    public void addDriveMotionMeasurements() {
+        addMeasurements();
+    }
+
+    @Benchmark
+    public double getMaxAbsDrivePitchAngularVelocityInRange() {
+        return robotState.getMaxAbsDrivePitchAngularVelocityInRange(time - 0.1, time);
+    }
+
+    // ループ1周期で読む姿勢・速度・IMUをスナップショット1回の取得で揃える
+    @Benchmark
+    public double readLatestSnapshot() {
+        var snapshot = robotState.getLatestSnapshot();
+        return snapshot.getFieldToRobot().getX()
+                + snapshot.getMeasuredRobotRelativeVx()
+                + snapshot.getPitchRads();
+    }
+}
@@ -0,0 +1,118 @@
+package frc.robot.benchmarks;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.RobotState;
+import frc.robot.lib.util.ConcurrentTimeInterpolatableBuffer;
+import frc.robot.lib.util.ConcurrentTimeInterpolatableDoubleBuffer;
+import frc.robot.lib.util.SingleWriterTimeInterpolatableBuffer;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//
+// 読み込み(getSampleの補間と区間の絶対値最大)のベンチマーク。
+// 250Hzで1秒分書き込んだバッファに対して、ランダムな時刻と直近の時刻で問い合わせる。
+//
+
+@State(Scope.Thread)
+public class TimeBufferReadBenchmark {
+    private static final double kRateHz = 250.0;
+    private static final int kQueryCount = 1024;
+
+    // 問い合わせ時刻 (乱数生成を計測に含めないよう事前に作る)
+    private final double[] randomTimes = new double[kQueryCount];
+    private final double[] recentTimes = new double[kQueryCount];
+    private int next = 0;
+
+    private ConcurrentTimeInterpolatableBuffer<Pose2d> mapPoseBuffer;
+    private SingleWriterTimeInterpolatableBuffer<Pose2d> singleWriterPoseBuffer;
+    private ConcurrentTimeInterpolatableBuffer<Double> mapDoubleBuffer;
+    private ConcurrentTimeInterpolatableDoubleBuffer ringDoubleBuffer;
+
+    @Setup
+    public void setup() {
+        mapPoseBuffer = ConcurrentTimeInterpolatableBuffer.createBuffer(RobotState.LOOKBACK_TIME_SEC);
+        singleWriterPoseBuffer =
+                SingleWriterTimeInterpolatableBuffer.createBuffer(
+                        RobotState.LOOKBACK_TIME_SEC, RobotState.ODOMETRY_HISTORY_CAPACITY);
+        mapDoubleBuffer =
+                ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(RobotState.LOOKBACK_TIME_SEC);
+        ringDoubleBuffer =
+                ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(RobotState.LOOKBACK_TIME_SEC);
+
+        double end = 10.0;
+        for (double t = end - RobotState.LOOKBACK_TIME_SEC; t <= end; t += 1.0 / kRateHz) {
+            Pose2d pose = new Pose2d(t, -t, Rotation2d.fromRadians(t));
+            mapPoseBuffer.addSample(t, pose);
+            singleWriterPoseBuffer.addSample(t, pose);
+            mapDoubleBuffer.addSample(t, Math.sin(t));
+            ringDoubleBuffer.addSample(t, Math.sin(t));
+        }
+
+        Random random = new Random(9494);
+        for (int i = 0; i < kQueryCount; i++) {
+            randomTimes[i] = end - RobotState.LOOKBACK_TIME_SEC * random.nextDouble();
+            // ビジョンの遅延(数十ms)程度だけ過去の時刻
+            recentTimes[i] = end - 0.05 * random.nextDouble();
+        }
+    }
+
+    private double nextTime(double[] times) {
+        next = (next + 1) & (kQueryCount - 1);
+        return times[next];
+    }
+
+    @Benchmark
+    public Optional<Pose2d> mapPoseGetSampleRandom() {
+        return mapPoseBuffer.getSample(nextTime(randomTimes));
+    }
+
+    @Benchmark
+    public Optional<Pose2d> singleWriterPoseGetSampleRandom() {
+        return singleWriterPoseBuffer.getSample(nextTime(randomTimes));
+    }
+
+    @Benchmark
+    public Optional<Pose2d> mapPoseGetSampleRecent() {
+        return mapPoseBuffer.getSample(nextTime(recentTimes));
+    }
+
+    @Benchmark
+    public Optional<Pose2d> singleWriterPoseGetSampleRecent() {
+        return singleWriterPoseBuffer.getSample(nextTime(recentTimes));
+    }
+
+    @Benchmark
+    public Optional<Double> mapDoubleGetSampleRandom() {
+        return mapDoubleBuffer.getSample(nextTime(randomTimes));
+    }
+
+    @Benchmark
+    public double ringDoubleGetSampleRandom() {
+        return ringDoubleBuffer.getSample(nextTime(randomTimes), 0.0);
+    }
+
+    // 変更前のRobotState.getMaxAbsValueInRange (subMapを2回streamで走査)
+    @Benchmark
+    public Optional<Double> mapDoubleMaxAbsValueInRange() {
+        double start = nextTime(randomTimes);
+        var submap = mapDoubleBuffer.getInternalBuffer().subMap(start, start + 0.1).values();
+        var max = submap.stream().max(Double::compare);
+        var min = submap.stream().min(Double::compare);
+        if (max.isEmpty() || min.isEmpty()) return Optional.empty();
+        if (Math.abs(max.get()) >= Math.abs(min.get())) return max;
+        else return min;
+    }
+
+    @Benchmark
+    public double ringDoubleMaxAbsInRange() {
+        double start = nextTime(randomTimes);
+        return ringDoubleBuffer.getMaxAbsInRange(start, start + 0.1);
+    }
+}
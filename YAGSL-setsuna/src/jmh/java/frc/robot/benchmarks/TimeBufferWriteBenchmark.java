@@ -0,0 +1,75 @@
+package frc.robot.benchmarks;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.RobotState;
+import frc.robot.lib.util.ConcurrentTimeInterpolatableBuffer;
+import frc.robot.lib.util.ConcurrentTimeInterpolatableDoubleBuffer;
+import frc.robot.lib.util.SingleWriterTimeInterpolatableBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+//
+// 書き込み(addSample + cleanUp)のベンチマーク。
+// 1回の呼び出しで時刻を1/rateHzずつ進め、1秒分の履歴を保った状態を測る。
+//
+
+@State(Scope.Thread)
+public class TimeBufferWriteBenchmark {
+    @Param({"50", "250", "1000"})
+    public double rateHz;
+
+    private double dt;
+    private double time;
+    private Pose2d pose;
+
+    private ConcurrentTimeInterpolatableBuffer<Pose2d> mapPoseBuffer;
+    private SingleWriterTimeInterpolatableBuffer<Pose2d> singleWriterPoseBuffer;
+    private ConcurrentTimeInterpolatableBuffer<Double> mapDoubleBuffer;
+    private ConcurrentTimeInterpolatableDoubleBuffer ringDoubleBuffer;
+
+    @Setup
+    public void setup() {
+        dt = 1.0 / rateHz;
+        time = 0.0;
+        pose = new Pose2d(1.0, 2.0, Rotation2d.fromDegrees(30.0));
+        int capacity = Math.max(RobotState.ODOMETRY_HISTORY_CAPACITY, (int) (2 * rateHz));
+        mapPoseBuffer = ConcurrentTimeInterpolatableBuffer.createBuffer(RobotState.LOOKBACK_TIME_SEC);
+        singleWriterPoseBuffer =
+                SingleWriterTimeInterpolatableBuffer.createBuffer(
+                        RobotState.LOOKBACK_TIME_SEC, capacity);
+        mapDoubleBuffer =
+                ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(RobotState.LOOKBACK_TIME_SEC);
+        ringDoubleBuffer =
+                ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(
+                        RobotState.LOOKBACK_TIME_SEC, capacity);
+    }
+
+    @Benchmark
+    public void mapPoseAddSample() {
+        time += dt;
+        mapPoseBuffer.addSample(time, pose);
+    }
+
+    @Benchmark
+    public void singleWriterPoseAddSample() {
+        time += dt;
+        singleWriterPoseBuffer.addSample(time, pose);
+    }
+
+    @Benchmark
+    public void mapDoubleAddSample() {
+        time += dt;
+        mapDoubleBuffer.addSample(time, time);
+    }
+
+    @Benchmark
+    public void ringDoubleAddSample() {
+        time += dt;
+        ringDoubleBuffer.addSample(time, time);
+    }
+}
@@ -1,21 +1,64 @@
 package frc.robot;
 
-import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.lib.time.LoopProfiler;
 
-public class Robot extends TimedRobot {
+import org.littletonrobotics.junction.LoggedRobot;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.networktables.NT4Publisher;
+import org.littletonrobotics.junction.wpilog.WPILOGWriter;
+
+public class Robot extends LoggedRobot {
   private Command m_autonomousCommand;
   private final RobotContainer m_robotContainer;
 
+  // ループ内の各区間の処理時間の計測
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+  private final int m_loopSection = m_profiler.registerSection("Robot/Loop");
+  private final int m_ntFlushSection = m_profiler.registerSection("Robot/NTFlush");
+  private final int m_schedulerSection = m_profiler.registerSection("Robot/CommandScheduler");
+  private final int m_loggerSection = m_profiler.registerSection("RobotState/updateLogger");
+
   public Robot() {
+    // AdvantageKitのログを開始する (Logger.recordOutputはstart以降でないと記録されない)
+    // 実機ではUSBメモリ(/U/logs)へwpilogを書き、tools/RobotStateReplayなどで後から読む。
+    Logger.recordMetadata("ProjectName", "YAGSL-setsuna");
+    if (isReal()) {
+      Logger.addDataReceiver(new WPILOGWriter());
+    }
+    Logger.addDataReceiver(new NT4Publisher());
+    Logger.start();
+
     m_robotContainer = new RobotContainer();
     System.out.println("RobotContainer" +  m_robotContainer);
+    m_profiler.instrumentCommands(CommandScheduler.getInstance());
   }
 
   @Override
   public void robotPeriodic() {
+    m_profiler.begin(m_loopSection);
+
+    // 最新のIMU/オドメトリのサンプルから見出し角をLimelightへ送り、
+    // このループで溜まったNTへの書き込みと一緒に1回だけフラッシュする
+    m_profiler.begin(m_ntFlushSection);
+    RobotStateSnapshot snapshot = m_robotContainer.getRobotState().getLatestSnapshot();
+    m_robotContainer.getLimelightOutputs().publishAndFlush(
+        snapshot.getFieldToRobot().getRotation().getDegrees(),
+        Math.toDegrees(snapshot.getYawAngularVelocity()));
+    m_profiler.end(m_ntFlushSection);
+
+    m_profiler.begin(m_schedulerSection);
     CommandScheduler.getInstance().run();
+    m_profiler.endCommandSections();
+    m_profiler.end(m_schedulerSection);
+
+    m_profiler.begin(m_loggerSection);
+    m_robotContainer.getRobotState().updateLogger();
+    m_profiler.end(m_loggerSection);
+
+    m_profiler.end(m_loopSection);
+    m_profiler.publishIfDue();
   }
 
   @Override
@@ -54,5 +97,7 @@ public class Robot extends TimedRobot {
 
   /** This function is called periodically whilst in simulation. */
   @Override
-  public void simulationPeriodic() {}
+  public void simulationPeriodic() {
+    m_robotContainer.simulationPeriodic();
+  }
 }
@@ -4,29 +4,74 @@ package frc.robot;
 // import frc.robot.commands.ExampleCommand;
 import frc.robot.commands.FaceAprilTagCommand;
 
+import frc.robot.sim.SimulatedLimelight;
+import frc.robot.sim.SimulatedLimelightConfig;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.telemetry.TelemetryProfile;
+import frc.robot.subsystems.telemetry.TelemetrySubsystem;
+import frc.robot.subsystems.vision.VisionCameraConfig;
 import frc.robot.subsystems.vision.VisionSubsystem;
 
+import frc.robot.lib.limelight.LimelightClient;
+import frc.robot.lib.limelight.LimelightOutputCoordinator;
+import frc.robot.lib.time.RobotTime;
 import frc.robot.lib.util.Constants.OperatorConstants;
+import frc.robot.lib.util.Constants.VisionConstants;
 
 import com.pathplanner.lib.auto.NamedCommands;
 
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.littletonrobotics.junction.Logger;
+
 import swervelib.SwerveInputStream;
 public class RobotContainer {
-  private final SwerveSubsystem drivebase = new SwerveSubsystem();
+  // テレメトリのプロファイル (deploy/telemetry.local.jsonかtelemetry.json、試合中は必ずMATCH)
+  private final TelemetryProfile telemetryProfile = TelemetryProfile.load();
+  private final SwerveSubsystem drivebase = new SwerveSubsystem(telemetryProfile);
+  private final TelemetrySubsystem telemetry =
+      new TelemetrySubsystem(drivebase.getSwerveDrive(), telemetryProfile);
+  // ビジョン推定はRobotStateの受け入れ口を通してから姿勢推定器へ融合する
+  private final RobotState robotState =
+      new RobotState(drivebase::addVisionMeasurement, RobotBase.isReal());
   private final CommandXboxController m_driverController =
       new CommandXboxController(OperatorConstants.kDriverControllerPort);
   private final VisionSubsystem vision =
-      new VisionSubsystem(drivebase.getSwerveDrive());
+      new VisionSubsystem(
+          robotState,
+          drivebase.getReplayRecorder(),
+          VisionConstants.cameras);
+  // Limelightへの書き込みはここに集めて、ループの最初に1回だけフラッシュする
+  private final LimelightOutputCoordinator limelightOutputs =
+      new LimelightOutputCoordinator(
+          VisionConstants.cameras.stream().map(VisionCameraConfig::getLimelightName).toList());
+
+  // シミュレーションでLimelightの代わりに検出結果を公開する (実機では空)
+  private final List<SimulatedLimelight> simulatedLimelights = new ArrayList<>();
 
   public RobotContainer() {
     DriverStation.silenceJoystickConnectionWarning(true);
+    drivebase.startOdometryThread(robotState);
+    if (RobotBase.isSimulation()) {
+      AprilTagFieldLayout fieldLayout = AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField);
+      for (SimulatedLimelightConfig config : VisionConstants.simCameras) {
+        SimulatedLimelight limelight =
+            new SimulatedLimelight(config, fieldLayout, LimelightClient.getDefault());
+        limelight.start();
+        simulatedLimelights.add(limelight);
+      }
+    }
     configureBindings();
     drivebase.setDefaultCommand(driveFieldOrentedAngularVelocity);
     NamedCommands.registerCommand("test", Commands.print("Hello Hanabi"));
@@ -50,9 +95,28 @@ public class RobotContainer {
 
   private void configureBindings() {
     m_driverController.b().whileTrue(
-      new FaceAprilTagCommand(drivebase)
+      new FaceAprilTagCommand(drivebase, robotState)
     );
   }
+  public RobotState getRobotState() {
+    return robotState;
+  }
+
+  public LimelightOutputCoordinator getLimelightOutputs() {
+    return limelightOutputs;
+  }
+
+  // シミュレーションの真の姿勢をシミュレーション用Limelightへ渡す (Robot.simulationPeriodicから呼ぶ)
+  public void simulationPeriodic() {
+    Pose2d truePose = drivebase.getSimulatedTruePose();
+    double timestamp = RobotTime.getTimestampSeconds();
+    for (SimulatedLimelight limelight : simulatedLimelights) {
+      limelight.updateTruePose(timestamp, truePose);
+      limelight.logOutputs();
+    }
+    Logger.recordOutput("SimLimelight/TruePose", truePose);
+  }
+
    public Command getAutonomousCommand() {
     // ここに.autoの名前を入力する
     return drivebase.getAutonomousCommand("New Auto");
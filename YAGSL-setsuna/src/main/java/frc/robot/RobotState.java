@@ -1,8 +1,10 @@
 package frc.robot;
 
 import frc.robot.subsystems.vision.VisionFieldPoseEstimate;
-import frc.robot.lib.util.ConcurrentTimeInterpolatableBuffer;
+import frc.robot.lib.util.SingleWriterTimeInterpolatableBuffer;
+import frc.robot.lib.util.ConcurrentTimeInterpolatableDoubleBuffer;
 import frc.robot.lib.util.MathHelpers;
+import frc.robot.lib.util.RateLimitedLogger;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Twist2d;
@@ -14,12 +16,11 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.IntSupplier; 
 
-import org.littletonrobotics.junction.Logger;
-
 // ======================================================================================
 // Editer : ひなた
 //
@@ -28,13 +29,23 @@ public class RobotState {
     // 参照のためのバッファ長
     public static final double LOOKBACK_TIME_SEC = 1.0;
 
+    // 姿勢履歴の容量 (250Hzのオドメトリを1秒分保持できる大きさ)
+    public static final int ODOMETRY_HISTORY_CAPACITY = 512;
+
     // ビジョン推定を外部へ引き渡すコールバック
     private final Consumer<VisionFieldPoseEstimate> visionEstimateConsumer;
 
+    // ヨー角速度をIMUの履歴から取るか (シミュレーションではnavXが動かないので計測速度を使う)
+    private final boolean useImuYawRate;
+
     // TimeStampを初期化
     // メソッドの副作用(変数更新)を目的とするインターフェース"Consumer"を利用している。
-    public RobotState(Consumer<VisionFieldPoseEstimate> visionEstimateConsumer) {
+    // useImuYawRateは実機ならtrue、シミュレーションならfalse。
+    // HALを呼ばないので、リプレイやベンチマークのようにロボット以外でも作れる。
+    public RobotState(
+            Consumer<VisionFieldPoseEstimate> visionEstimateConsumer, boolean useImuYawRate) {
         this.visionEstimateConsumer = visionEstimateConsumer;
+        this.useImuYawRate = useImuYawRate;
         fieldToRobot.addSample(0.0, MathHelpers.kPose2dZero);
         driveYawAngularVelocity.addSample(0.0, 0.0);
 
@@ -43,8 +54,10 @@ public class RobotState {
 
     // ---- 走行状態 ----
     // ロボット姿勢の履歴
-    private final ConcurrentTimeInterpolatableBuffer<Pose2d> fieldToRobot = 
-            ConcurrentTimeInterpolatableBuffer.createBuffer(LOOKBACK_TIME_SEC);
+    // 書き込みはオドメトリ側だけなので、単一書き込み(seqlock)のバッファを使う。
+    private final SingleWriterTimeInterpolatableBuffer<Pose2d> fieldToRobot =
+            SingleWriterTimeInterpolatableBuffer.createBuffer(
+                    LOOKBACK_TIME_SEC, ODOMETRY_HISTORY_CAPACITY);
     
     // ロボット座標系速度
     private final AtomicReference<ChassisSpeeds> measuredRobotRelativeChassisSpeeds =
@@ -66,6 +79,14 @@ public class RobotState {
     private final AtomicReference<ChassisSpeeds> fusedFieldRelativeChassisSpeeds =
             new AtomicReference<>(new ChassisSpeeds());
     
+    // オドメトリ1周期分の状態をまとめたスナップショット
+    // オドメトリの更新ごとに新しいものへ差し替えるので、利用側は1周期に1回取得すればよい。
+    private final AtomicReference<RobotStateSnapshot> latestSnapshot =
+            new AtomicReference<>(RobotStateSnapshot.kEmpty);
+
+    // 最後にオドメトリから受け取った姿勢 (オドメトリのスレッドだけが読み書きする)
+    private Pose2d latestOdometryPose = MathHelpers.kPose2dZero;
+
     // ループの反復回数
     private final AtomicInteger iteration = new AtomicInteger(0);
 
@@ -73,34 +94,40 @@ public class RobotState {
     private double lastUsedMegatagTimestamp = 0;
     private Pose2d lastUsedMegatagPose = Pose2d.kZero;
 
+    // 採用済みのフレームと同じ時刻で、読み飛ばしたMegatag推定の数
+    private final AtomicLong skippedDuplicateMegatagCount = new AtomicLong(0);
+
+    // 採用済みのフレームより古くて、読み飛ばしたMegatag推定の数
+    private final AtomicLong skippedStaleMegatagCount = new AtomicLong(0);
+
     // 角速度/姿勢/加速度の履歴
     // ヨー角速度
-    private final ConcurrentTimeInterpolatableBuffer<Double> driveYawAngularVelocity =
-            ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(LOOKBACK_TIME_SEC);
+    private final ConcurrentTimeInterpolatableDoubleBuffer driveYawAngularVelocity =
+            ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(LOOKBACK_TIME_SEC);
     
     // ロール角速度
-    private final ConcurrentTimeInterpolatableBuffer<Double> driveRollAngularVelocity =
-            ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(LOOKBACK_TIME_SEC);
+    private final ConcurrentTimeInterpolatableDoubleBuffer driveRollAngularVelocity =
+            ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(LOOKBACK_TIME_SEC);
     
     // ピッチ角速度
-    private final ConcurrentTimeInterpolatableBuffer<Double> drivePitchAngularVelocity =
-            ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(LOOKBACK_TIME_SEC);
+    private final ConcurrentTimeInterpolatableDoubleBuffer drivePitchAngularVelocity =
+            ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(LOOKBACK_TIME_SEC);
     
     // 基準水平面からの絶対角(ロール)
-    private final ConcurrentTimeInterpolatableBuffer<Double> drivePitchRads =
-            ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(LOOKBACK_TIME_SEC);
+    private final ConcurrentTimeInterpolatableDoubleBuffer drivePitchRads =
+            ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(LOOKBACK_TIME_SEC);
     
     // 基準水平面からの絶対角(ピッチ)
-    private final ConcurrentTimeInterpolatableBuffer<Double> driveRollRads = 
-            ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(LOOKBACK_TIME_SEC);
+    private final ConcurrentTimeInterpolatableDoubleBuffer driveRollRads =
+            ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(LOOKBACK_TIME_SEC);
     
     // X軸への加速度
-    private final ConcurrentTimeInterpolatableBuffer<Double> accelX = 
-            ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(LOOKBACK_TIME_SEC);
+    private final ConcurrentTimeInterpolatableDoubleBuffer accelX =
+            ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(LOOKBACK_TIME_SEC);
     
     // Y軸への加速度
-    private final ConcurrentTimeInterpolatableBuffer<Double> accelY =
-            ConcurrentTimeInterpolatableBuffer.createDoubleBuffer(LOOKBACK_TIME_SEC);
+    private final ConcurrentTimeInterpolatableDoubleBuffer accelY =
+            ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(LOOKBACK_TIME_SEC);
     
     // 自動経路キャンセルのフラグ
     private final AtomicBoolean enablePathCancel = new AtomicBoolean(false);
@@ -136,9 +163,10 @@ public class RobotState {
         return enablePathCancel.get();
     }
 
-    // ポーズサンプルのadder
+    // ポーズサンプルのadder (オドメトリのスレッドからのみ呼ぶこと)
     public void addOdometryMeasurement(double timestamp, Pose2d pose) {
         fieldToRobot.addSample(timestamp, pose);
+        latestOdometryPose = pose;
     }
 
     // イテレーション(periodicなど)のカウンタ
@@ -182,8 +210,31 @@ public class RobotState {
         this.measuredRobotRelativeChassisSpeeds.set(measuredSpeeds);
         this.measuredFieldRelativeChassisSpeeds.set(measuredFieldRelativeSpeeds);
         this.fusedFieldRelativeChassisSpeeds.set(fusedFieldRelativeSpeeds);
+
+        // 同じ周期の値をまとめて公開 (addOdometryMeasurementの後に呼ばれる前提)
+        latestSnapshot.set(
+                new RobotStateSnapshot(
+                        timestamp,
+                        latestOdometryPose,
+                        measuredSpeeds,
+                        measuredFieldRelativeSpeeds,
+                        desiredRobotRelativeChassisSpeeds,
+                        desiredFieldRelativeSpeeds,
+                        fusedFieldRelativeSpeeds,
+                        angularRollRadsPerS,
+                        angularPitchRadsPerS,
+                        angularYawRadsPerS,
+                        pitchRads,
+                        rollRads,
+                        accelX,
+                        accelY));
     }
-    
+
+    // 最新のスナップショット。姿勢・速度・IMUを揃えて読みたいときはこれを1回だけ取得する。
+    public RobotStateSnapshot getLatestSnapshot() {
+        return latestSnapshot.get();
+    }
+
 
     public Map.Entry<Double, Pose2d> getLatestFieldToRobot() {
         return fieldToRobot.getLatest();
@@ -191,38 +242,43 @@ public class RobotState {
 
     // 現在の速度から短時間先の姿勢を予測する。
     public Pose2d getPredicatedFieldToRobot(double lookaheadTimeS) {
-        var maybeFieldToRobot = getLatestFieldToRobot();
-        Pose2d fieldToRobot =
-                maybeFieldToRobot == null ? MathHelpers.kPose2dZero : maybeFieldToRobot.getValue();
-        var delta = getLatestRobotRelativeChassisSpeed();
-        delta = delta.times(lookaheadTimeS);
-        return fieldToRobot.exp(
+        // 姿勢と速度は同じ周期のものを使う
+        var snapshot = getLatestSnapshot();
+        return snapshot.getFieldToRobot().exp(
                 new Twist2d(
-                        delta.vxMetersPerSecond,
-                        delta.vyMetersPerSecond,
-                        delta.omegaRadiansPerSecond));
+                        snapshot.getMeasuredRobotRelativeVx() * lookaheadTimeS,
+                        snapshot.getMeasuredRobotRelativeVy() * lookaheadTimeS,
+                        snapshot.getMeasuredRobotRelativeOmega() * lookaheadTimeS));
     }
 
     // 予測時に-方向の草土をゼロに制限する。(非ホロノミック用)
     public Pose2d getPredicateCappedFieldToRobot(double lookaheadTimeS) {
-        var maybeFieldToRobot = getLatestFieldToRobot();
-        Pose2d fieldToRobot = 
-                        maybeFieldToRobot == null ? MathHelpers.kPose2dZero : maybeFieldToRobot.getValue();
-        var delta = getLatestRobotRelativeChassisSpeed();
-        delta = delta.times(lookaheadTimeS);
-        return fieldToRobot.exp(
+        var snapshot = getLatestSnapshot();
+        return snapshot.getFieldToRobot().exp(
                 new Twist2d(
-                        Math.max(0.0, delta.vxMetersPerSecond),
-                        Math.max(0.0, delta.vyMetersPerSecond),
-                        delta.omegaRadiansPerSecond
+                        Math.max(0.0, snapshot.getMeasuredRobotRelativeVx() * lookaheadTimeS),
+                        Math.max(0.0, snapshot.getMeasuredRobotRelativeVy() * lookaheadTimeS),
+                        snapshot.getMeasuredRobotRelativeOmega() * lookaheadTimeS
                 )
         );
     }
 
+    // 履歴の範囲外の時刻は最古・最新の姿勢に丸められる (emptyにはならない)
     public Optional<Pose2d> getFieldToRobot(double timestamp) {
         return fieldToRobot.getSample(timestamp);
     }
 
+    // 履歴の範囲内(最古〜最新のサンプルの間)の時刻なら補間した姿勢を返す。
+    // 履歴より古い・まだオドメトリが届いていない時刻ならempty。
+    public Optional<Pose2d> getFieldToRobotInHistory(double timestamp) {
+        double oldest = fieldToRobot.getOldestTimestamp();
+        double latest = fieldToRobot.getLatestTimestamp();
+        if (Double.isNaN(oldest) || timestamp < oldest || timestamp > latest) {
+            return Optional.empty();
+        }
+        return fieldToRobot.getSample(timestamp);
+    }
+
     public ChassisSpeeds getLatestMeasuredFieldRelativeChassisSpeeds() {
         return measuredFieldRelativeChassisSpeeds.get();
     }
@@ -243,11 +299,13 @@ public class RobotState {
         return fusedFieldRelativeChassisSpeeds.get();
     }
 
+    // 並進は計測速度、回転は融合速度を使う
     public ChassisSpeeds getLatestFusedRobotRelativeChassisSpeeds() {
-        var speeds = getLatestRobotRelativeChassisSpeed();
-        speeds.omegaRadiansPerSecond = 
-                        getLatestFusedFieldRelativeChassisSpeed().omegaRadiansPerSecond;
-        return speeds;
+        var snapshot = getLatestSnapshot();
+        return new ChassisSpeeds(
+                snapshot.getMeasuredRobotRelativeVx(),
+                snapshot.getMeasuredRobotRelativeVy(),
+                snapshot.getFusedFieldRelativeOmega());
     }
 
     // ledは使う予定無いので未再現
@@ -259,43 +317,60 @@ public class RobotState {
     //         return ledState.get();
     //     }
 
-    private Optional<Double> getMaxAbsValueInRange(
-            ConcurrentTimeInterpolatableBuffer<Double> buffer, double minTime, double maxTime) {
-        var submap = buffer.getInternalBuffer().subMap(minTime, maxTime).values();
-        var max = submap.stream().max(Double::compare);
-        var min = submap.stream().min(Double::compare);
-        if (max.isEmpty() || min.isEmpty()) return Optional.empty();
-        if (Math.abs(max.get()) >= Math.abs(min.get())) return max;
-        else return min;
+    // 区間内で絶対値が最大の値。データが無ければNO_DATA(NaN)を返す。
+    private double getMaxAbsValueInRange(
+            ConcurrentTimeInterpolatableDoubleBuffer buffer, double minTime, double maxTime) {
+        return buffer.getMaxAbsInRange(minTime, maxTime);
     }
 
-    public Optional<Double> getMaxAbsDriveYawAngularVelocityInRnage(
+    public double getMaxAbsDriveYawAngularVelocityInRnage(
             double minTime, double maxTime) {
-        if (Robot.isReal()) return getMaxAbsValueInRange(driveYawAngularVelocity, minTime, maxTime);
-        return Optional.of(measuredRobotRelativeChassisSpeeds.get().omegaRadiansPerSecond);
+        if (useImuYawRate) return getMaxAbsValueInRange(driveYawAngularVelocity, minTime, maxTime);
+        return measuredRobotRelativeChassisSpeeds.get().omegaRadiansPerSecond;
     }
 
-    public Optional<Double> getMaxAbsDrivePitchAngularVelocityInRange(
+    public double getMaxAbsDrivePitchAngularVelocityInRange(
             double minTime, double maxTime) {
         return getMaxAbsValueInRange(drivePitchAngularVelocity, minTime, maxTime);
     }
 
-    public Optional<Double> getMaxAbsDriveRollAngularVelocityInRange(
+    public double getMaxAbsDriveRollAngularVelocityInRange(
             double mitTime, double maxTime) {
         return getMaxAbsValueInRange(driveRollAngularVelocity, mitTime, maxTime);
     }
 
-    public void updateMegatagEstimate(VisionFieldPoseEstimate megatagEstimate) {
-        lastUsedMegatagTimestamp = megatagEstimate.getTimestampSeconds();
+    // ビジョン推定の受け入れ口。全てのビジョン推定はここを通して融合する。
+    // 採用済みのフレーム以前の撮影時刻の推定は、同じフレームの再取得か
+    // 時間を遡る推定なので捨てる。採用した場合はtrueを返す。
+    public synchronized boolean updateMegatagEstimate(VisionFieldPoseEstimate megatagEstimate) {
+        double timestamp = megatagEstimate.getTimestampSeconds();
+        if (timestamp == lastUsedMegatagTimestamp) {
+            skippedDuplicateMegatagCount.incrementAndGet();
+            return false;
+        }
+        if (timestamp < lastUsedMegatagTimestamp) {
+            skippedStaleMegatagCount.incrementAndGet();
+            return false;
+        }
+        lastUsedMegatagTimestamp = timestamp;
         lastUsedMegatagPose = megatagEstimate.getVisionRobotPoseMeters();
         visionEstimateConsumer.accept(megatagEstimate);
+        return true;
+    }
+
+    public long getSkippedDuplicateMegatagCount() {
+        return skippedDuplicateMegatagCount.get();
     }
 
-    public double lastUsedMegatagTimestamp() {
+    public long getSkippedStaleMegatagCount() {
+        return skippedStaleMegatagCount.get();
+    }
+
+    public synchronized double lastUsedMegatagTimestamp() {
         return lastUsedMegatagTimestamp;
     }
 
-    public Pose2d lastUsedMegatagPose() {
+    public synchronized Pose2d lastUsedMegatagPose() {
         return lastUsedMegatagPose;
     }
 
@@ -304,53 +379,65 @@ public class RobotState {
                 && DriverStation.getAlliance().equals(Optional.of(Alliance.Red));
     }
 
+    // ---- ログ出力 ----
+    // 値が変わったときだけ出力し、加速度などはdecimationで出力頻度を下げる。(50Hzループ基準)
+    private final RateLimitedLogger stateLogger = new RateLimitedLogger();
+    private final RateLimitedLogger.DoubleChannel yawAngularVelocityLog =
+            stateLogger.doubleChannel("RobotState/YawAngularVelocity", 1);
+    private final RateLimitedLogger.DoubleChannel rollAngularVelocityLog =
+            stateLogger.doubleChannel("RobotState/RollAngularVelocity", 1);
+    private final RateLimitedLogger.DoubleChannel pitchAngularVelocityLog =
+            stateLogger.doubleChannel("RobotState/PitchAngularVelocity", 1);
+    private final RateLimitedLogger.DoubleChannel pitchRadsLog =
+            stateLogger.doubleChannel("RobotState/PitchRads", 1);
+    private final RateLimitedLogger.DoubleChannel rollRadsLog =
+            stateLogger.doubleChannel("RobotState/RollRads", 1);
+    private final RateLimitedLogger.DoubleChannel accelXLog =
+            stateLogger.doubleChannel("RobotState/AccelX", 5);
+    private final RateLimitedLogger.DoubleChannel accelYLog =
+            stateLogger.doubleChannel("RobotState/AccelY", 5);
+    private final RateLimitedLogger.LongChannel skippedDuplicateMegatagsLog =
+            stateLogger.longChannel("RobotState/SkippedDuplicateMegatags", 5);
+    private final RateLimitedLogger.LongChannel skippedStaleMegatagsLog =
+            stateLogger.longChannel("RobotState/SkippedStaleMegatags", 5);
+    private final RateLimitedLogger.ChassisSpeedsChannel desiredFieldSpeedsLog =
+            stateLogger.chassisSpeedsChannel("RobotState/DesiredChassisSpeedFieldFrame", 1);
+    private final RateLimitedLogger.ChassisSpeedsChannel desiredRobotSpeedsLog =
+            stateLogger.chassisSpeedsChannel("RobotState/DesiredChassisSpeedRobotFrame", 1);
+    private final RateLimitedLogger.ChassisSpeedsChannel measuredFieldSpeedsLog =
+            stateLogger.chassisSpeedsChannel("RobotState/MeasuredChassisSpeedFieldFrame", 1);
+    private final RateLimitedLogger.ChassisSpeedsChannel fusedFieldSpeedsLog =
+            stateLogger.chassisSpeedsChannel("RobotState/FusedChassisSpeedFieldFrame", 1);
+
     public void updateLogger() {
-        // AdvantageKitへの集約ログ出力
-        if (this.driveYawAngularVelocity.getInternalBuffer().lastEntry() != null) {
-            Logger.recordOutput(
-                    "RobotState/YawAngularVelocity",
-                    this.driveYawAngularVelocity.getInternalBuffer().lastEntry().getValue());
-        }
-        if (this.driveRollAngularVelocity.getInternalBuffer().lastEntry() != null) {
-            Logger.recordOutput(
-                    "RobotState/RollAngularVelocity",
-                    this.driveRollAngularVelocity.getInternalBuffer().lastEntry().getValue());
-        }
-        if (this.drivePitchAngularVelocity.getInternalBuffer().lastEntry() != null) {
-            Logger.recordOutput(
-                    "RobotState/PitchAngularVelocity",
-                    this.drivePitchAngularVelocity.getInternalBuffer().lastEntry().getValue());
-        }
-        if (this.drivePitchRads.getInternalBuffer().lastEntry() != null) {
-            Logger.recordOutput(
-                    "RobotState/PitchRads",
-                    this.drivePitchRads.getInternalBuffer().lastEntry().getValue());
-        }
-        if (this.driveRollRads.getInternalBuffer().lastEntry() != null) {
-            Logger.recordOutput(
-                    "RobotState/RollRads",
-                    this.driveRollRads.getInternalBuffer().lastEntry().getValue());
-        }
-        if (this.accelX.getInternalBuffer().lastEntry() != null) {
-            Logger.recordOutput(
-                    "RobotState/AccelX", this.accelX.getInternalBuffer().lastEntry().getValue());
-        }
-        if (this.accelY.getInternalBuffer().lastEntry() != null) {
-            Logger.recordOutput(
-                    "RobotState/AccelY", this.accelY.getInternalBuffer().lastEntry().getValue());
-        }
-        Logger.recordOutput(
-                "RobotState/DesiredChassisSpeedFieldFrame",
-                getLatestDesiredFieldRelativeChassisSpeed());
-        Logger.recordOutput(
-                "RobotState/DesiredChassisSpeedRobotFrame",
-                getLatestDesiredRobotRelativeChassisSpeeds());
-        Logger.recordOutput(
-                "RobotState/MeasuredChassisSpeedFieldFrame",
-                getLatestMeasuredFieldRelativeChassisSpeeds());
-        Logger.recordOutput(
-                "RobotState/FusedChassisSpeedFieldFrame",
-                getLatestFusedFieldRelativeChassisSpeed());
+        // AdvantageKitへの集約ログ出力 (同じオドメトリ周期のスナップショットから出す)
+        var snapshot = getLatestSnapshot();
+        stateLogger.nextCycle();
+        yawAngularVelocityLog.record(snapshot.getYawAngularVelocity());
+        rollAngularVelocityLog.record(snapshot.getRollAngularVelocity());
+        pitchAngularVelocityLog.record(snapshot.getPitchAngularVelocity());
+        pitchRadsLog.record(snapshot.getPitchRads());
+        rollRadsLog.record(snapshot.getRollRads());
+        accelXLog.record(snapshot.getAccelX());
+        accelYLog.record(snapshot.getAccelY());
+        skippedDuplicateMegatagsLog.record(getSkippedDuplicateMegatagCount());
+        skippedStaleMegatagsLog.record(getSkippedStaleMegatagCount());
+        desiredFieldSpeedsLog.record(
+                snapshot.getDesiredFieldRelativeVx(),
+                snapshot.getDesiredFieldRelativeVy(),
+                snapshot.getDesiredFieldRelativeOmega());
+        desiredRobotSpeedsLog.record(
+                snapshot.getDesiredRobotRelativeVx(),
+                snapshot.getDesiredRobotRelativeVy(),
+                snapshot.getDesiredRobotRelativeOmega());
+        measuredFieldSpeedsLog.record(
+                snapshot.getMeasuredFieldRelativeVx(),
+                snapshot.getMeasuredFieldRelativeVy(),
+                snapshot.getMeasuredFieldRelativeOmega());
+        fusedFieldSpeedsLog.record(
+                snapshot.getFusedFieldRelativeVx(),
+                snapshot.getFusedFieldRelativeVy(),
+                snapshot.getFusedFieldRelativeOmega());
 
         // 機構状態のログ
         // Logger.recordOutput("RobotState/ElevatorHeightMeters", getElevatorHeightMeters());
@@ -409,17 +496,11 @@ public class RobotState {
 
     // ピッチのゲッター
     public double getDrivePitchRadians() {
-        if (this.drivePitchRads.getInternalBuffer().lastEntry() != null) {
-            return drivePitchRads.getInternalBuffer().lastEntry().getValue();
-        }
-        return 0.0;
+        return drivePitchRads.getLatestValue(0.0);
     }
 
     // ロールのゲッター
     public double getDriveRollRadians() {
-        if (this.driveRollRads.getInternalBuffer().lastEntry() != null) {
-            return driveRollRads.getInternalBuffer().lastEntry().getValue();
-        }
-        return 0.0;
+        return driveRollRads.getLatestValue(0.0);
     }
 }
\ No newline at end of file
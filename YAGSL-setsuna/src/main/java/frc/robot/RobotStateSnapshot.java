@@ -0,0 +1,228 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+// ======================================================================================
+// オドメトリ1周期分のRobotStateをまとめた不変オブジェクト。
+// RobotStateはオドメトリの更新ごとに新しいスナップショットを1つ公開するので、
+// 利用側はループの最初に1回だけ取得すれば、姿勢・速度・IMUが同じ時刻の値で揃う。
+// 速度は成分ごとにdoubleへコピーして持つので、取得した側が書き換えることはできない。
+// (Pose2dはもともと不変。生成はオドメトリ1周期につきこのオブジェクト1個だけ)
+//
+
+public final class RobotStateSnapshot {
+    private final double timestampSeconds;
+
+    // ロボット姿勢
+    private final Pose2d fieldToRobot;
+
+    // 速度 (計測/目標/融合。m/s, rad/s)
+    private final double measuredRobotRelativeVx;
+    private final double measuredRobotRelativeVy;
+    private final double measuredRobotRelativeOmega;
+    private final double measuredFieldRelativeVx;
+    private final double measuredFieldRelativeVy;
+    private final double measuredFieldRelativeOmega;
+    private final double desiredRobotRelativeVx;
+    private final double desiredRobotRelativeVy;
+    private final double desiredRobotRelativeOmega;
+    private final double desiredFieldRelativeVx;
+    private final double desiredFieldRelativeVy;
+    private final double desiredFieldRelativeOmega;
+    private final double fusedFieldRelativeVx;
+    private final double fusedFieldRelativeVy;
+    private final double fusedFieldRelativeOmega;
+
+    // 角速度 (rad/s)
+    private final double rollAngularVelocity;
+    private final double pitchAngularVelocity;
+    private final double yawAngularVelocity;
+
+    // 姿勢角 (rad)
+    private final double pitchRads;
+    private final double rollRads;
+
+    // 加速度 (m/s^2)
+    private final double accelX;
+    private final double accelY;
+
+    public static final RobotStateSnapshot kEmpty =
+            new RobotStateSnapshot(
+                    0.0,
+                    Pose2d.kZero,
+                    new ChassisSpeeds(),
+                    new ChassisSpeeds(),
+                    new ChassisSpeeds(),
+                    new ChassisSpeeds(),
+                    new ChassisSpeeds(),
+                    0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+
+    public RobotStateSnapshot(
+            double timestampSeconds,
+            Pose2d fieldToRobot,
+            ChassisSpeeds measuredRobotRelativeSpeeds,
+            ChassisSpeeds measuredFieldRelativeSpeeds,
+            ChassisSpeeds desiredRobotRelativeSpeeds,
+            ChassisSpeeds desiredFieldRelativeSpeeds,
+            ChassisSpeeds fusedFieldRelativeSpeeds,
+            double rollAngularVelocity,
+            double pitchAngularVelocity,
+            double yawAngularVelocity,
+            double pitchRads,
+            double rollRads,
+            double accelX,
+            double accelY) {
+        this.timestampSeconds = timestampSeconds;
+        this.fieldToRobot = fieldToRobot;
+        this.measuredRobotRelativeVx = measuredRobotRelativeSpeeds.vxMetersPerSecond;
+        this.measuredRobotRelativeVy = measuredRobotRelativeSpeeds.vyMetersPerSecond;
+        this.measuredRobotRelativeOmega = measuredRobotRelativeSpeeds.omegaRadiansPerSecond;
+        this.measuredFieldRelativeVx = measuredFieldRelativeSpeeds.vxMetersPerSecond;
+        this.measuredFieldRelativeVy = measuredFieldRelativeSpeeds.vyMetersPerSecond;
+        this.measuredFieldRelativeOmega = measuredFieldRelativeSpeeds.omegaRadiansPerSecond;
+        this.desiredRobotRelativeVx = desiredRobotRelativeSpeeds.vxMetersPerSecond;
+        this.desiredRobotRelativeVy = desiredRobotRelativeSpeeds.vyMetersPerSecond;
+        this.desiredRobotRelativeOmega = desiredRobotRelativeSpeeds.omegaRadiansPerSecond;
+        this.desiredFieldRelativeVx = desiredFieldRelativeSpeeds.vxMetersPerSecond;
+        this.desiredFieldRelativeVy = desiredFieldRelativeSpeeds.vyMetersPerSecond;
+        this.desiredFieldRelativeOmega = desiredFieldRelativeSpeeds.omegaRadiansPerSecond;
+        this.fusedFieldRelativeVx = fusedFieldRelativeSpeeds.vxMetersPerSecond;
+        this.fusedFieldRelativeVy = fusedFieldRelativeSpeeds.vyMetersPerSecond;
+        this.fusedFieldRelativeOmega = fusedFieldRelativeSpeeds.omegaRadiansPerSecond;
+        this.rollAngularVelocity = rollAngularVelocity;
+        this.pitchAngularVelocity = pitchAngularVelocity;
+        this.yawAngularVelocity = yawAngularVelocity;
+        this.pitchRads = pitchRads;
+        this.rollRads = rollRads;
+        this.accelX = accelX;
+        this.accelY = accelY;
+    }
+
+    public double getTimestampSeconds() {
+        return timestampSeconds;
+    }
+
+    public Pose2d getFieldToRobot() {
+        return fieldToRobot;
+    }
+
+    // 計測速度 (ロボット座標)
+    public double getMeasuredRobotRelativeVx() {
+        return measuredRobotRelativeVx;
+    }
+
+    public double getMeasuredRobotRelativeVy() {
+        return measuredRobotRelativeVy;
+    }
+
+    public double getMeasuredRobotRelativeOmega() {
+        return measuredRobotRelativeOmega;
+    }
+
+    // 呼ぶたびに新しいChassisSpeedsを返す。周期処理では成分のgetterを使う。
+    public ChassisSpeeds getMeasuredRobotRelativeSpeeds() {
+        return new ChassisSpeeds(
+                measuredRobotRelativeVx, measuredRobotRelativeVy, measuredRobotRelativeOmega);
+    }
+
+    // 計測速度 (フィールド座標)
+    public double getMeasuredFieldRelativeVx() {
+        return measuredFieldRelativeVx;
+    }
+
+    public double getMeasuredFieldRelativeVy() {
+        return measuredFieldRelativeVy;
+    }
+
+    public double getMeasuredFieldRelativeOmega() {
+        return measuredFieldRelativeOmega;
+    }
+
+    public ChassisSpeeds getMeasuredFieldRelativeSpeeds() {
+        return new ChassisSpeeds(
+                measuredFieldRelativeVx, measuredFieldRelativeVy, measuredFieldRelativeOmega);
+    }
+
+    // 目標速度 (ロボット座標)
+    public double getDesiredRobotRelativeVx() {
+        return desiredRobotRelativeVx;
+    }
+
+    public double getDesiredRobotRelativeVy() {
+        return desiredRobotRelativeVy;
+    }
+
+    public double getDesiredRobotRelativeOmega() {
+        return desiredRobotRelativeOmega;
+    }
+
+    public ChassisSpeeds getDesiredRobotRelativeSpeeds() {
+        return new ChassisSpeeds(
+                desiredRobotRelativeVx, desiredRobotRelativeVy, desiredRobotRelativeOmega);
+    }
+
+    // 目標速度 (フィールド座標)
+    public double getDesiredFieldRelativeVx() {
+        return desiredFieldRelativeVx;
+    }
+
+    public double getDesiredFieldRelativeVy() {
+        return desiredFieldRelativeVy;
+    }
+
+    public double getDesiredFieldRelativeOmega() {
+        return desiredFieldRelativeOmega;
+    }
+
+    public ChassisSpeeds getDesiredFieldRelativeSpeeds() {
+        return new ChassisSpeeds(
+                desiredFieldRelativeVx, desiredFieldRelativeVy, desiredFieldRelativeOmega);
+    }
+
+    // 融合速度 (フィールド座標)
+    public double getFusedFieldRelativeVx() {
+        return fusedFieldRelativeVx;
+    }
+
+    public double getFusedFieldRelativeVy() {
+        return fusedFieldRelativeVy;
+    }
+
+    public double getFusedFieldRelativeOmega() {
+        return fusedFieldRelativeOmega;
+    }
+
+    public ChassisSpeeds getFusedFieldRelativeSpeeds() {
+        return new ChassisSpeeds(
+                fusedFieldRelativeVx, fusedFieldRelativeVy, fusedFieldRelativeOmega);
+    }
+
+    public double getRollAngularVelocity() {
+        return rollAngularVelocity;
+    }
+
+    public double getPitchAngularVelocity() {
+        return pitchAngularVelocity;
+    }
+
+    public double getYawAngularVelocity() {
+        return yawAngularVelocity;
+    }
+
+    public double getPitchRads() {
+        return pitchRads;
+    }
+
+    public double getRollRads() {
+        return rollRads;
+    }
+
+    public double getAccelX() {
+        return accelX;
+    }
+
+    public double getAccelY() {
+        return accelY;
+    }
+}
@@ -5,51 +5,127 @@
 
 package frc.robot.commands;
 
+import frc.robot.RobotState;
+import frc.robot.lib.limelight.LimelightHandle;
+import frc.robot.lib.limelight.LimelightHelpers;
+import frc.robot.lib.time.RobotTime;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.vision.FieldTargetTracker;
 import static frc.robot.lib.util.Constants.SemiAutoConstants.*;
+import static frc.robot.lib.util.Constants.VisionConstants.limelightName;
 
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.TimestampedDouble;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
 import edu.wpi.first.wpilibj2.command.Command;
 
+import java.util.Optional;
+
+// タグの位置は撮影時刻(tl + cl ミリ秒前)のものなので、そのまま制御すると
+// 遅れの間に動いた分だけ行き過ぎて振動する。
+// そこで新しいフレームが届いたら撮影時刻のオドメトリ姿勢でタグの位置をフィールド座標に直しておき、
+// 毎周期、最新の姿勢から見たタグの位置を計算して制御する。(フレームの間も毎周期更新される)
+// タグが一瞬見えなくなっても、FieldTargetTrackerが目標を保持している間はオドメトリだけで追従を続ける。
 public class FaceAprilTagCommand extends Command {
     private final SwerveSubsystem swerve;
-
-    private final NetworkTable table =
-    NetworkTableInstance.getDefault().getTable("limelight");
+    private final RobotState robotState;
+
+    // NTの購読はLimelightHandleにまとめて、毎周期のテーブル/エントリの検索をしない
+    private final LimelightHandle limelight = LimelightHelpers.getHandle(limelightName);
+    private final DoubleArraySubscriber targetPoseRobotSpace =
+        limelight.getDoubleArraySubscriber("targetpose_robotspace");
+    // 遅れ(ms)。targetpose_robotspaceと同じ周期に公開される値を組み合わせる
+    private final DoubleSubscriber pipelineLatency = limelight.getDoubleSubscriber("tl");
+    private final DoubleSubscriber captureLatency = limelight.getDoubleSubscriber("cl");
+
+    // 最後に使ったフレームのNT時刻 (マイクロ秒)
+    private long lastFrameTimestampMicros = -1;
+
+    // 撮影時刻の姿勢で直したタグの位置 (フィールド座標) を保持する
+    private final FieldTargetTracker tracker =
+        new FieldTargetTracker(
+            targetCoastSeconds,
+            targetConfidenceTimeConstantSeconds,
+            targetFilterGain,
+            targetResetDistanceMeter);
 
     public FaceAprilTagCommand(
-        SwerveSubsystem swerve
+        SwerveSubsystem swerve,
+        RobotState robotState
     ) {
         this.swerve = swerve;
+        this.robotState = robotState;
         addRequirements(swerve);
     }
 
     @Override
     public void initialize() {
+        lastFrameTimestampMicros = -1;
+        tracker.reset();
     }
 
     @Override
     public void execute() {
-        boolean tv = table.getEntry("tv").getDouble(0) == 1.0; // 1なら有効  [oai_citation:4‡docs.limelightvision.io](https://docs.limelightvision.io/docs/docs-limelight/apis/complete-networktables-api?utm_source=chatgpt.com)
+        double now = RobotTime.getTimestampSeconds();
+        boolean tv = limelight.getTV(); // 1なら有効
+        Pose2d fieldToRobot = robotState.getLatestSnapshot().getFieldToRobot();
+
+        // AprilTagの3D位置（ロボット座標）
+        // targetpose_robotspace = [tx, ty, tz, pitch, yaw, roll] (meters, degrees)
+        TimestampedDoubleArray frame = targetPoseRobotSpace.getAtomic();
+        // tl/clはトピックが別なのでNT時刻が完全には一致しない。
+        // 時刻が近いものだけを同じフレームの遅れとみなす (届いていなければ次の周期に持ち越す)
+        TimestampedDouble tl = pipelineLatency.getAtomic();
+        TimestampedDouble cl = captureLatency.getAtomic();
+        if (tv
+            && frame.value.length >= 6
+            && frame.timestamp != lastFrameTimestampMicros
+            && Math.abs(tl.timestamp - frame.timestamp) <= latencyPairingToleranceMicros
+            && Math.abs(cl.timestamp - frame.timestamp) <= latencyPairingToleranceMicros) {
+            lastFrameTimestampMicros = frame.timestamp;
+
+            // 撮影時刻 = NTに公開された時刻 - 遅れ(パイプライン遅れ + 撮影遅れ)
+            double captureTimestamp = frame.timestamp / 1e6 - (tl.value + cl.value) / 1000.0;
+
+            // 撮影時刻が姿勢履歴の範囲外(古すぎる・未来)なら観測に使わない
+            // (最新の姿勢で代用すると、動いている間はタグの位置がずれる)
+            Optional<Pose2d> fieldToRobotAtCapture =
+                robotState.getFieldToRobotInHistory(captureTimestamp);
+            if (fieldToRobotAtCapture.isPresent()) {
+                // 前後 = t[0]、左 = -t[1] (座標系が逆なため、左右反転)
+                Translation2d robotToTarget = new Translation2d(frame.value[0], -frame.value[1]);
+                tracker.addObservation(
+                    captureTimestamp,
+                    now,
+                    fieldToRobotAtCapture.get(),
+                    robotToTarget);
+            }
+        }
 
-        if (!tv) {
-            // 見えてない時は停止（前回指令が残らないように）
+        var maybeFieldToTarget = tracker.getFieldToTarget(now);
+        // 見えない時間が保持時間を超えた、または信頼度が下がりきったら停止（前回指令が残らないように）
+        // 信頼度は止めるかどうかの判定だけに使い、出力は弱めない
+        if (maybeFieldToTarget.isEmpty() || tracker.getConfidence(now) < targetMinConfidence) {
             swerve.setChassisSpeeds(new ChassisSpeeds(0, 0, 0));
             return;
         }
+        Translation2d fieldToTarget = maybeFieldToTarget.get();
 
-        // AprilTagの3D位置（ロボット座標）
-        // targetpose_robotspace = [tx, ty, tz, pitch, yaw, roll] (meters, degrees)  [oai_citation:5‡docs.limelightvision.io](https://docs.limelightvision.io/docs/docs-limelight/apis/complete-networktables-api?utm_source=chatgpt.com)
-        double[] t = table.getEntry("targetpose_robotspace").getDoubleArray(new double[6]);
+        // 最新の姿勢から見たタグの位置（ロボット座標）
+        Translation2d robotToTargetNow =
+            fieldToTarget.minus(fieldToRobot.getTranslation())
+                .rotateBy(fieldToRobot.getRotation().unaryMinus());
 
         // =========================
         // 1) 並進（タグの手前で止める）
         // =========================
-        double forwardErrorwithTargetMeter = t[0]; // 前後誤差
-        double leftErrorwithTargetMeter = -t[1];   // 座標系が逆なため、左右反転
+        double forwardErrorwithTargetMeter = robotToTargetNow.getX(); // 前後誤差
+        double leftErrorwithTargetMeter = robotToTargetNow.getY();    // 左右誤差
 
         double velocity_x = MathUtil.clamp(translationGain * forwardErrorwithTargetMeter, -velocityMaximum, velocityMaximum);
         double velocity_y = MathUtil.clamp(translationGain * leftErrorwithTargetMeter, -velocityMaximum, velocityMaximum);
@@ -58,17 +134,17 @@ public class FaceAprilTagCommand extends Command {
         if (Math.abs(leftErrorwithTargetMeter) < planeDeadbandMeter) velocity_y = 0.0;
 
         // =========================
-        // 2) 回転（タグに正対：tx角度を0に）
+        // 2) 回転（タグに正対：水平角ズレを0に）
         // =========================
-        double angularErrorwithTargetRad = Math.toRadians(table.getEntry("tx").getDouble(0.0)); // 水平角ズレ(deg)  [oai_citation:7‡docs.limelightvision.io](https://docs.limelightvision.io/docs/docs-limelight/apis/complete-networktables-api?utm_source=chatgpt.com)
+        // txと同じ向き(タグが右なら+)の水平角ズレを、補正後の位置から求める
+        double angularErrorwithTargetRad = -Math.atan2(leftErrorwithTargetMeter, forwardErrorwithTargetMeter);
 
-        // txが右(+)なら、時計回り(omega−)で戻したいのでマイナス
-        // ChassisSpeeds: omegaはrad/s  [oai_citation:8‡FIRST Robotics Competition Documentation](https://docs.wpilib.org/en/stable/docs/software/kinematics-and-odometry/intro-and-chassis-speeds.html?utm_source=chatgpt.com)
+        // ChassisSpeeds: omegaはrad/s (符号は元のtxによる制御と同じ)
         double omega = MathUtil.clamp(angularGain * angularErrorwithTargetRad, -omegaMaximum, omegaMaximum);
 
         if (Math.abs(angularErrorwithTargetRad) < thetaDeadbandRad) omega = 0.0;
 
-        // 出力：vx=前, vy=左, omega=角速度  [oai_citation:9‡FIRST Robotics Competition Documentation](https://docs.wpilib.org/en/stable/docs/software/kinematics-and-odometry/intro-and-chassis-speeds.html?utm_source=chatgpt.com)
+        // 出力：vx=前, vy=左, omega=角速度
         swerve.setChassisSpeeds(new ChassisSpeeds(velocity_x, velocity_y, omega));
     }
 
@@ -76,4 +152,4 @@ public class FaceAprilTagCommand extends Command {
     public void end(boolean interrupted) {
         swerve.setChassisSpeeds(new ChassisSpeeds(0, 0, 0));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package frc.robot.lib.limelight;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.lib.limelight.LimelightHelpers.PoseEstimate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limelight access bound to one NetworkTables instance.
+ *
+ * <p>Each client owns its own {@link LimelightHandle} cache, so two clients on different
+ * instances never share subscribers, even for cameras with the same name. The static {@link
+ * LimelightHelpers} API delegates to {@link #getDefault()}, which wraps {@link
+ * NetworkTableInstance#getDefault()}. Simulations and tests that need isolation create a private
+ * instance (for example with {@link NetworkTableInstance#create()}) and pass a client built on it
+ * to the vision classes. Clients are safe to share between threads.
+ */
+public class LimelightClient {
+    private static volatile LimelightClient defaultClient;
+
+    private final NetworkTableInstance instance;
+    private final Map<String, LimelightHandle> handles = new ConcurrentHashMap<>();
+
+    /**
+     * @param instance NetworkTables instance the Limelights publish to
+     */
+    public LimelightClient(NetworkTableInstance instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * @return Client on the default NetworkTables instance, used by the static LimelightHelpers API
+     */
+    public static LimelightClient getDefault() {
+        LimelightClient client = defaultClient;
+        if (client == null) {
+            synchronized (LimelightClient.class) {
+                client = defaultClient;
+                if (client == null) {
+                    client = new LimelightClient(NetworkTableInstance.getDefault());
+                    defaultClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    public NetworkTableInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param limelightName Name of the Limelight camera ("" for default)
+     * @return Table the Limelight publishes to on this client's instance
+     */
+    public NetworkTable getTable(String limelightName) {
+        return instance.getTable(LimelightHelpers.sanitizeName(limelightName));
+    }
+
+    /**
+     * Gets the cached subscriber/publisher handle for a Limelight, creating it on first use. Names
+     * are sanitized first, so "" and "limelight" share one handle.
+     *
+     * @param limelightName Name of the Limelight camera ("" for default)
+     * @return Handle shared by all callers of this client using the same table
+     */
+    public LimelightHandle getHandle(String limelightName) {
+        String tableName = LimelightHelpers.sanitizeName(limelightName);
+        LimelightHandle handle = handles.get(tableName);
+        if (handle == null) {
+            handle =
+                    handles.computeIfAbsent(
+                            tableName, name -> new LimelightHandle(name, instance.getTable(name)));
+        }
+        return handle;
+    }
+
+    /** Sends every queued write on this client's instance immediately. */
+    public void flush() {
+        instance.flush();
+    }
+
+    /**
+     * Same as {@link LimelightHelpers#getBotPoseEstimate_wpiBlue_MegaTag2(String, PoseEstimate)},
+     * on this client's instance.
+     *
+     * @param limelightName Name of the Limelight camera
+     * @param out PoseEstimate to write into, typically created with PoseEstimate(int)
+     * @return false if no data is available
+     */
+    public boolean getBotPoseEstimate_wpiBlue_MegaTag2(String limelightName, PoseEstimate out) {
+        var tsValue =
+                getHandle(limelightName).getDoubleArrayEntry("botpose_orb_wpiblue").getAtomic();
+        return LimelightHelpers.decodePoseEstimate(tsValue.value, tsValue.timestamp, true, out);
+    }
+
+    /**
+     * Sets the robot orientation used by MegaTag2 without flushing.
+     *
+     * @param limelightName Name of the Limelight camera
+     * @param orientation [yaw, yawRate, pitch, pitchRate, roll, rollRate] in degrees
+     */
+    public void setRobotOrientation(String limelightName, double[] orientation) {
+        getHandle(limelightName).setRobotOrientation(orientation);
+    }
+
+    public void setPipelineIndex(String limelightName, int pipelineIndex) {
+        getHandle(limelightName).setDouble("pipeline", pipelineIndex);
+    }
+
+    public void setPriorityTagID(String limelightName, int id) {
+        getHandle(limelightName).setDouble("priorityid", id);
+    }
+}
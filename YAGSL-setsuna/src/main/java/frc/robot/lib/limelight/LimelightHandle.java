@@ -0,0 +1,180 @@
+package frc.robot.lib.limelight;
+
+import edu.wpi.first.networktables.DoubleArrayEntry;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.StringArraySubscriber;
+import edu.wpi.first.networktables.StringSubscriber;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-camera cache of typed NetworkTables subscribers and publishers for one Limelight.
+ *
+ * <p>The table and every topic handle are resolved once, on first use, so repeated reads do not
+ * repeat name sanitizing, table lookups or topic-name concatenation. The most frequently polled
+ * topics are subscribed eagerly into fields; any other topic is resolved lazily into a per-type map
+ * keyed only by the entry name. Publishers, including robot_orientation_set, are only created on
+ * first write, so read-only users never announce a publisher. Handles are safe to share between
+ * threads.
+ */
+public class LimelightHandle {
+    private static final double[] kEmptyDoubleArray = new double[0];
+    private static final String[] kEmptyStringArray = new String[0];
+
+    private final String name;
+    private final NetworkTable table;
+
+    private final Map<String, DoubleSubscriber> doubleSubscribers = new ConcurrentHashMap<>();
+    private final Map<String, DoublePublisher> doublePublishers = new ConcurrentHashMap<>();
+    private final Map<String, DoubleArraySubscriber> doubleArraySubscribers =
+            new ConcurrentHashMap<>();
+    private final Map<String, DoubleArrayPublisher> doubleArrayPublishers =
+            new ConcurrentHashMap<>();
+    private final Map<String, DoubleArrayEntry> doubleArrayEntries = new ConcurrentHashMap<>();
+    private final Map<String, StringSubscriber> stringSubscribers = new ConcurrentHashMap<>();
+    private final Map<String, StringArraySubscriber> stringArraySubscribers =
+            new ConcurrentHashMap<>();
+
+    // Hot-path topics, resolved up front
+    private final DoubleSubscriber tv;
+    private final DoubleSubscriber tx;
+    private final DoubleSubscriber ty;
+    private final DoubleSubscriber ta;
+    private final DoubleSubscriber tl;
+    private final DoubleSubscriber cl;
+
+    // Created on the first setRobotOrientation call
+    private volatile DoubleArrayPublisher robotOrientation;
+
+    /**
+     * Creates a handle for the given Limelight table.
+     *
+     * @param name Sanitized name of the Limelight camera ("limelight" for the default camera)
+     * @param table NetworkTable the Limelight publishes to
+     */
+    public LimelightHandle(String name, NetworkTable table) {
+        this.name = name;
+        this.table = table;
+        this.tv = getDoubleSubscriber("tv");
+        this.tx = getDoubleSubscriber("tx");
+        this.ty = getDoubleSubscriber("ty");
+        this.ta = getDoubleSubscriber("ta");
+        this.tl = getDoubleSubscriber("tl");
+        this.cl = getDoubleSubscriber("cl");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public NetworkTable getTable() {
+        return table;
+    }
+
+    public DoubleSubscriber getDoubleSubscriber(String entryName) {
+        return doubleSubscribers.computeIfAbsent(
+                entryName, k -> table.getDoubleTopic(k).subscribe(0.0));
+    }
+
+    public DoublePublisher getDoublePublisher(String entryName) {
+        return doublePublishers.computeIfAbsent(
+                entryName, k -> table.getDoubleTopic(k).publish());
+    }
+
+    public DoubleArraySubscriber getDoubleArraySubscriber(String entryName) {
+        return doubleArraySubscribers.computeIfAbsent(
+                entryName, k -> table.getDoubleArrayTopic(k).subscribe(kEmptyDoubleArray));
+    }
+
+    public DoubleArrayPublisher getDoubleArrayPublisher(String entryName) {
+        return doubleArrayPublishers.computeIfAbsent(
+                entryName, k -> table.getDoubleArrayTopic(k).publish());
+    }
+
+    public DoubleArrayEntry getDoubleArrayEntry(String entryName) {
+        return doubleArrayEntries.computeIfAbsent(
+                entryName, k -> table.getDoubleArrayTopic(k).getEntry(kEmptyDoubleArray));
+    }
+
+    public StringSubscriber getStringSubscriber(String entryName) {
+        return stringSubscribers.computeIfAbsent(
+                entryName, k -> table.getStringTopic(k).subscribe(""));
+    }
+
+    public StringArraySubscriber getStringArraySubscriber(String entryName) {
+        return stringArraySubscribers.computeIfAbsent(
+                entryName, k -> table.getStringArrayTopic(k).subscribe(kEmptyStringArray));
+    }
+
+    public double getDouble(String entryName) {
+        return getDoubleSubscriber(entryName).get();
+    }
+
+    public void setDouble(String entryName, double value) {
+        getDoublePublisher(entryName).set(value);
+    }
+
+    public double[] getDoubleArray(String entryName) {
+        return getDoubleArraySubscriber(entryName).get();
+    }
+
+    public void setDoubleArray(String entryName, double[] value) {
+        getDoubleArrayPublisher(entryName).set(value);
+    }
+
+    public String getString(String entryName) {
+        return getStringSubscriber(entryName).get();
+    }
+
+    public String[] getStringArray(String entryName) {
+        return getStringArraySubscriber(entryName).get();
+    }
+
+    /** @return True if a valid target is present */
+    public boolean getTV() {
+        return tv.get() == 1.0;
+    }
+
+    /** @return Horizontal offset from the crosshair to the target in degrees */
+    public double getTX() {
+        return tx.get();
+    }
+
+    /** @return Vertical offset from the crosshair to the target in degrees */
+    public double getTY() {
+        return ty.get();
+    }
+
+    /** @return Target area (0% to 100% of image) */
+    public double getTA() {
+        return ta.get();
+    }
+
+    /** @return Pipeline latency in milliseconds */
+    public double getLatencyPipeline() {
+        return tl.get();
+    }
+
+    /** @return Capture latency in milliseconds */
+    public double getLatencyCapture() {
+        return cl.get();
+    }
+
+    /**
+     * Publishes the robot orientation used by MegaTag2. Does not flush.
+     *
+     * @param orientation [yaw, yawRate, pitch, pitchRate, roll, rollRate] in degrees and deg/s
+     */
+    public void setRobotOrientation(double[] orientation) {
+        DoubleArrayPublisher publisher = robotOrientation;
+        if (publisher == null) {
+            publisher = getDoubleArrayPublisher("robot_orientation_set");
+            robotOrientation = publisher;
+        }
+        publisher.set(orientation);
+    }
+}
@@ -18,43 +18,40 @@ import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.DoubleArrayEntry;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.TimestampedDoubleArray;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * LimelightHelpers provides static methods and classes for interfacing with Limelight vision
  * cameras in FRC. This library supports all Limelight features including AprilTag tracking, Neural
  * Networks, and standard color/retroreflective tracking.
+ *
+ * <p>The static methods all use {@link LimelightClient#getDefault()}; use a {@link LimelightClient}
+ * directly to talk to a different NetworkTables instance.
  */
 public class LimelightHelpers {
 
-    private static final Map<String, DoubleArrayEntry> doubleArrayEntries =
-            new ConcurrentHashMap<>();
-
     /** Represents a Color/Retroreflective Target Result extracted from JSON Output */
     public static class LimelightTarget_Retro {
 
         @JsonProperty("t6c_ts")
-        private double[] cameraPose_TargetSpace;
+        double[] cameraPose_TargetSpace;
 
         @JsonProperty("t6r_fs")
-        private double[] robotPose_FieldSpace;
+        double[] robotPose_FieldSpace;
 
         @JsonProperty("t6r_ts")
-        private double[] robotPose_TargetSpace;
+        double[] robotPose_TargetSpace;
 
         @JsonProperty("t6t_cs")
-        private double[] targetPose_CameraSpace;
+        double[] targetPose_CameraSpace;
 
         @JsonProperty("t6t_rs")
-        private double[] targetPose_RobotSpace;
+        double[] targetPose_RobotSpace;
 
         public Pose3d getCameraPose_TargetSpace() {
             return toPose3D(cameraPose_TargetSpace);
@@ -139,19 +136,19 @@ public class LimelightHelpers {
         public String fiducialFamily;
 
         @JsonProperty("t6c_ts")
-        private double[] cameraPose_TargetSpace;
+        double[] cameraPose_TargetSpace;
 
         @JsonProperty("t6r_fs")
-        private double[] robotPose_FieldSpace;
+        double[] robotPose_FieldSpace;
 
         @JsonProperty("t6r_ts")
-        private double[] robotPose_TargetSpace;
+        double[] robotPose_TargetSpace;
 
         @JsonProperty("t6t_cs")
-        private double[] targetPose_CameraSpace;
+        double[] targetPose_CameraSpace;
 
         @JsonProperty("t6t_rs")
-        private double[] targetPose_RobotSpace;
+        double[] targetPose_RobotSpace;
 
         public Pose3d getCameraPose_TargetSpace() {
             return toPose3D(cameraPose_TargetSpace);
@@ -446,6 +443,9 @@ public class LimelightHelpers {
         public double distToRobot = 0;
         public double ambiguity = 0;
 
+        /** Instantiates an empty RawFiducial, for use in preallocated pools. */
+        public RawFiducial() {}
+
         public RawFiducial(
                 int id,
                 double txnc,
@@ -520,6 +520,17 @@ public class LimelightHelpers {
         public RawFiducial[] rawFiducials;
         public boolean isMegaTag2;
 
+        /**
+         * Robot pose components. These are always filled; the decodePoseEstimate overload that
+         * writes into an existing object fills only these and leaves pose untouched.
+         */
+        public double poseX;
+        public double poseY;
+        public double poseYawRadians;
+
+        /** Number of valid, populated entries at the start of rawFiducials. */
+        public int rawFiducialCount;
+
         /** Instantiates a PoseEstimate object with default values */
         public PoseEstimate() {
             this.pose = new Pose2d();
@@ -533,6 +544,22 @@ public class LimelightHelpers {
             this.isMegaTag2 = false;
         }
 
+        /**
+         * Instantiates a reusable PoseEstimate whose RawFiducial pool is preallocated, for use with
+         * the decodePoseEstimate overload that writes into an existing object. pose stays null;
+         * build it with toPose2d() when the estimate is handed on.
+         *
+         * @param maxTagCount Number of RawFiducial objects to preallocate
+         */
+        public PoseEstimate(int maxTagCount) {
+            this();
+            this.pose = null;
+            this.rawFiducials = new RawFiducial[maxTagCount];
+            for (int i = 0; i < maxTagCount; i++) {
+                this.rawFiducials[i] = new RawFiducial();
+            }
+        }
+
         public PoseEstimate(
                 Pose2d pose,
                 double timestampSeconds,
@@ -553,6 +580,19 @@ public class LimelightHelpers {
             this.avgTagArea = avgTagArea;
             this.rawFiducials = rawFiducials;
             this.isMegaTag2 = isMegaTag2;
+            this.poseX = pose.getX();
+            this.poseY = pose.getY();
+            this.poseYawRadians = pose.getRotation().getRadians();
+            this.rawFiducialCount = rawFiducials.length;
+        }
+
+        /**
+         * Builds a new Pose2d from poseX, poseY and poseYawRadians.
+         *
+         * @return The robot pose of this estimate
+         */
+        public Pose2d toPose2d() {
+            return new Pose2d(poseX, poseY, new Rotation2d(poseYawRadians));
         }
     }
 
@@ -593,7 +633,7 @@ public class LimelightHelpers {
     static boolean profileJSON = false;
 
     static final String sanitizeName(String name) {
-        if (name == "" || name == null) {
+        if (name == null || name.isEmpty()) {
             return "limelight";
         }
         return name;
@@ -687,9 +727,21 @@ public class LimelightHelpers {
                 LimelightHelpers.getLimelightDoubleArrayEntry(limelightName, entryName);
 
         TimestampedDoubleArray tsValue = poseEntry.getAtomic();
-        double[] poseArray = tsValue.value;
-        long timestamp = tsValue.timestamp;
+        return decodePoseEstimate(tsValue.value, tsValue.timestamp, isMegaTag2);
+    }
 
+    /**
+     * Decodes a botpose array (as published to botpose_wpiblue, botpose_orb_wpiblue, etc.) into a
+     * PoseEstimate. Useful when the array was obtained from a queued subscriber rather than the
+     * latest value.
+     *
+     * @param poseArray Raw botpose array
+     * @param timestampMicros NetworkTables timestamp of the array in microseconds
+     * @param isMegaTag2 Whether the array came from a MegaTag2 topic
+     * @return The decoded PoseEstimate, or null if the array is empty
+     */
+    public static PoseEstimate decodePoseEstimate(
+            double[] poseArray, long timestampMicros, boolean isMegaTag2) {
         if (poseArray.length == 0) {
             // Handle the case where no data is available
             return null; // or some default PoseEstimate
@@ -703,13 +755,14 @@ public class LimelightHelpers {
         double tagArea = extractArrayEntry(poseArray, 10);
 
         // Convert server timestamp from microseconds to seconds and adjust for latency
-        double adjustedTimestamp = (timestamp / 1000000.0) - (latency / 1000.0);
+        double adjustedTimestamp = (timestampMicros / 1000000.0) - (latency / 1000.0);
 
         RawFiducial[] rawFiducials = new RawFiducial[tagCount];
         int valsPerFiducial = 7;
         int expectedTotalVals = 11 + valsPerFiducial * tagCount;
 
-        if (poseArray.length != expectedTotalVals) {
+        boolean populated = poseArray.length == expectedTotalVals;
+        if (!populated) {
             // Don't populate fiducials
         } else {
             for (int i = 0; i < tagCount; i++) {
@@ -726,16 +779,72 @@ public class LimelightHelpers {
             }
         }
 
-        return new PoseEstimate(
-                pose,
-                adjustedTimestamp,
-                latency,
-                tagCount,
-                tagSpan,
-                tagDist,
-                tagArea,
-                rawFiducials,
-                isMegaTag2);
+        PoseEstimate estimate =
+                new PoseEstimate(
+                        pose,
+                        adjustedTimestamp,
+                        latency,
+                        tagCount,
+                        tagSpan,
+                        tagDist,
+                        tagArea,
+                        rawFiducials,
+                        isMegaTag2);
+        estimate.rawFiducialCount = populated ? tagCount : 0;
+        return estimate;
+    }
+
+    /**
+     * Decodes a botpose array into a caller-owned PoseEstimate without allocating. Fiducials are
+     * written into the preallocated out.rawFiducials pool (see PoseEstimate(int)); entries beyond
+     * the pool size are dropped and out.rawFiducialCount holds the number written. The robot pose is
+     * written only to poseX, poseY and poseYawRadians; out.pose is not touched. Call
+     * out.toPose2d() for frames that are actually used.
+     *
+     * @param poseArray Raw botpose array
+     * @param timestampMicros NetworkTables timestamp of the array in microseconds
+     * @param isMegaTag2 Whether the array came from a MegaTag2 topic
+     * @param out PoseEstimate to write into
+     * @return false if the array is empty and nothing was decoded
+     */
+    public static boolean decodePoseEstimate(
+            double[] poseArray, long timestampMicros, boolean isMegaTag2, PoseEstimate out) {
+        if (poseArray.length == 0) {
+            return false;
+        }
+
+        double latency = extractArrayEntry(poseArray, 6);
+        int tagCount = (int) extractArrayEntry(poseArray, 7);
+
+        out.poseX = extractArrayEntry(poseArray, 0);
+        out.poseY = extractArrayEntry(poseArray, 1);
+        out.poseYawRadians = Units.degreesToRadians(extractArrayEntry(poseArray, 5));
+        out.timestampSeconds = (timestampMicros / 1000000.0) - (latency / 1000.0);
+        out.latency = latency;
+        out.tagCount = tagCount;
+        out.tagSpan = extractArrayEntry(poseArray, 8);
+        out.avgTagDist = extractArrayEntry(poseArray, 9);
+        out.avgTagArea = extractArrayEntry(poseArray, 10);
+        out.isMegaTag2 = isMegaTag2;
+
+        int valsPerFiducial = 7;
+        int count = 0;
+        if (poseArray.length == 11 + valsPerFiducial * tagCount) {
+            count = Math.min(tagCount, out.rawFiducials.length);
+            for (int i = 0; i < count; i++) {
+                int baseIndex = 11 + (i * valsPerFiducial);
+                RawFiducial fiducial = out.rawFiducials[i];
+                fiducial.id = (int) poseArray[baseIndex];
+                fiducial.txnc = poseArray[baseIndex + 1];
+                fiducial.tync = poseArray[baseIndex + 2];
+                fiducial.ta = poseArray[baseIndex + 3];
+                fiducial.distToCamera = poseArray[baseIndex + 4];
+                fiducial.distToRobot = poseArray[baseIndex + 5];
+                fiducial.ambiguity = poseArray[baseIndex + 6];
+            }
+        }
+        out.rawFiducialCount = count;
+        return true;
     }
 
     /**
@@ -861,50 +970,54 @@ public class LimelightHelpers {
     }
 
     public static NetworkTable getLimelightNTTable(String tableName) {
-        return NetworkTableInstance.getDefault().getTable(sanitizeName(tableName));
+        return LimelightClient.getDefault().getTable(tableName);
     }
 
     public static void Flush() {
-        NetworkTableInstance.getDefault().flush();
+        LimelightClient.getDefault().flush();
     }
 
     public static NetworkTableEntry getLimelightNTTableEntry(String tableName, String entryName) {
         return getLimelightNTTable(tableName).getEntry(entryName);
     }
 
+    /**
+     * Gets the cached subscriber/publisher handle for a Limelight, creating it on first use.
+     *
+     * @param limelightName Name of the Limelight camera ("" for default)
+     * @return Handle shared by all callers of the default client using the same name
+     */
+    public static LimelightHandle getHandle(String limelightName) {
+        return LimelightClient.getDefault().getHandle(limelightName);
+    }
+
     public static DoubleArrayEntry getLimelightDoubleArrayEntry(
             String tableName, String entryName) {
-        String key = tableName + "/" + entryName;
-        return doubleArrayEntries.computeIfAbsent(
-                key,
-                k -> {
-                    NetworkTable table = getLimelightNTTable(tableName);
-                    return table.getDoubleArrayTopic(entryName).getEntry(new double[0]);
-                });
+        return getHandle(tableName).getDoubleArrayEntry(entryName);
     }
 
     public static double getLimelightNTDouble(String tableName, String entryName) {
-        return getLimelightNTTableEntry(tableName, entryName).getDouble(0.0);
+        return getHandle(tableName).getDouble(entryName);
     }
 
     public static void setLimelightNTDouble(String tableName, String entryName, double val) {
-        getLimelightNTTableEntry(tableName, entryName).setDouble(val);
+        getHandle(tableName).setDouble(entryName, val);
     }
 
     public static void setLimelightNTDoubleArray(String tableName, String entryName, double[] val) {
-        getLimelightNTTableEntry(tableName, entryName).setDoubleArray(val);
+        getHandle(tableName).setDoubleArray(entryName, val);
     }
 
     public static double[] getLimelightNTDoubleArray(String tableName, String entryName) {
-        return getLimelightNTTableEntry(tableName, entryName).getDoubleArray(new double[0]);
+        return getHandle(tableName).getDoubleArray(entryName);
     }
 
     public static String getLimelightNTString(String tableName, String entryName) {
-        return getLimelightNTTableEntry(tableName, entryName).getString("");
+        return getHandle(tableName).getString(entryName);
     }
 
     public static String[] getLimelightNTStringArray(String tableName, String entryName) {
-        return getLimelightNTTableEntry(tableName, entryName).getStringArray(new String[0]);
+        return getHandle(tableName).getStringArray(entryName);
     }
 
     public static URL getLimelightURLString(String tableName, String request) {
@@ -929,7 +1042,7 @@ public class LimelightHelpers {
      * @return True if a valid target is present, false otherwise
      */
     public static boolean getTV(String limelightName) {
-        return 1.0 == getLimelightNTDouble(limelightName, "tv");
+        return getHandle(limelightName).getTV();
     }
 
     /**
@@ -939,7 +1052,7 @@ public class LimelightHelpers {
      * @return Horizontal offset angle in degrees
      */
     public static double getTX(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tx");
+        return getHandle(limelightName).getTX();
     }
 
     /**
@@ -949,7 +1062,7 @@ public class LimelightHelpers {
      * @return Vertical offset angle in degrees
      */
     public static double getTY(String limelightName) {
-        return getLimelightNTDouble(limelightName, "ty");
+        return getHandle(limelightName).getTY();
     }
 
     /**
@@ -983,7 +1096,7 @@ public class LimelightHelpers {
      * @return Target area percentage (0-100)
      */
     public static double getTA(String limelightName) {
-        return getLimelightNTDouble(limelightName, "ta");
+        return getHandle(limelightName).getTA();
     }
 
     /**
@@ -1069,7 +1182,7 @@ public class LimelightHelpers {
      * @return Pipeline latency in milliseconds
      */
     public static double getLatency_Pipeline(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tl");
+        return getHandle(limelightName).getLatencyPipeline();
     }
 
     /**
@@ -1079,7 +1192,7 @@ public class LimelightHelpers {
      * @return Capture latency in milliseconds
      */
     public static double getLatency_Capture(String limelightName) {
-        return getLimelightNTDouble(limelightName, "cl");
+        return getHandle(limelightName).getLatencyCapture();
     }
 
     /**
@@ -1316,6 +1429,21 @@ public class LimelightHelpers {
         return getBotPoseEstimate(limelightName, "botpose_orb_wpiblue", true);
     }
 
+    /**
+     * Same as getBotPoseEstimate_wpiBlue_MegaTag2, but decodes into a caller-owned, preallocated
+     * PoseEstimate instead of allocating a new one.
+     *
+     * @param limelightName
+     * @param out PoseEstimate to write into, typically created with PoseEstimate(int)
+     * @return false if no data is available
+     */
+    public static boolean getBotPoseEstimate_wpiBlue_MegaTag2(
+            String limelightName, PoseEstimate out) {
+        TimestampedDoubleArray tsValue =
+                getLimelightDoubleArrayEntry(limelightName, "botpose_orb_wpiblue").getAtomic();
+        return decodePoseEstimate(tsValue.value, tsValue.timestamp, true, out);
+    }
+
     /**
      * Gets the Pose2d for easy use with Odometry vision pose estimator (addVisionMeasurement)
      *
@@ -1519,7 +1647,7 @@ public class LimelightHelpers {
         entries[3] = pitchRate;
         entries[4] = roll;
         entries[5] = rollRate;
-        setLimelightNTDoubleArray(limelightName, "robot_orientation_set", entries);
+        getHandle(limelightName).setRobotOrientation(entries);
         if (flush) {
             Flush();
         }
@@ -1662,6 +1790,27 @@ public class LimelightHelpers {
         return false;
     }
 
+    /**
+     * Parses the latest JSON dump with a streaming parser into a reusable results object. Only the
+     * sections the parser was created for are decoded; the others are skipped.
+     *
+     * @param limelightName Name of the Limelight camera
+     * @param parser Parser owning the pooled target objects written into {@code out}
+     * @param out Results object to overwrite
+     * @return {@code out}, with {@code error} set if the JSON could not be parsed
+     */
+    public static LimelightResults getLatestResults(
+            String limelightName, LimelightResultsParser parser, LimelightResults out) {
+        long start = System.nanoTime();
+        parser.parse(getJSONDump(limelightName), out);
+        double millis = (System.nanoTime() - start) * .000001;
+        out.latency_jsonParse = millis;
+        if (profileJSON) {
+            System.out.printf("lljson: %.2f\r\n", millis);
+        }
+        return out;
+    }
+
     /**
      * Gets the latest JSON results output and returns a LimelightResults object.
      *
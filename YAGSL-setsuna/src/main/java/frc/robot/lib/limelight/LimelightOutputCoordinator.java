@@ -0,0 +1,66 @@
+package frc.robot.lib.limelight;
+
+import java.util.List;
+
+/**
+ * Collects every robot-to-Limelight NetworkTables write made during a loop and sends them with a
+ * single flush at a fixed point in the loop.
+ *
+ * <p>Settings such as the pipeline index or priority tag are written to their publishers right
+ * away (NT buffers them) and go out with the next {@link #publishAndFlush} call. The robot
+ * orientation for MegaTag2 is written by {@link #publishAndFlush} itself into a reused array, so
+ * every camera receives the yaw sampled at the same point in the loop. Nothing else should call
+ * {@link LimelightHelpers#Flush()} or the flushing {@code SetRobotOrientation}. Call from the main
+ * robot thread only.
+ */
+public class LimelightOutputCoordinator {
+    private final LimelightClient client;
+    private final LimelightHandle[] handles;
+
+    // [yaw, yawRate, pitch, pitchRate, roll, rollRate], reused every loop
+    private final double[] orientation = new double[6];
+
+    /**
+     * @param client Client for the NetworkTables instance the Limelights listen on
+     * @param limelightNames Names of every Limelight that should receive the robot orientation
+     */
+    public LimelightOutputCoordinator(LimelightClient client, List<String> limelightNames) {
+        this.client = client;
+        this.handles = new LimelightHandle[limelightNames.size()];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = client.getHandle(limelightNames.get(i));
+        }
+    }
+
+    /**
+     * @param limelightNames Names of every Limelight that should receive the robot orientation
+     */
+    public LimelightOutputCoordinator(List<String> limelightNames) {
+        this(LimelightClient.getDefault(), limelightNames);
+    }
+
+    /** Queues a pipeline change; sent with the next flush. */
+    public void setPipelineIndex(String limelightName, int pipelineIndex) {
+        client.setPipelineIndex(limelightName, pipelineIndex);
+    }
+
+    /** Queues a priority tag change; sent with the next flush. */
+    public void setPriorityTagID(String limelightName, int id) {
+        client.setPriorityTagID(limelightName, id);
+    }
+
+    /**
+     * Writes the robot orientation to every camera, then flushes all queued NT writes once.
+     *
+     * @param yawDegrees Field-relative robot yaw in degrees (0 = facing the red alliance wall)
+     * @param yawRateDegreesPerSecond Yaw rate in degrees per second
+     */
+    public void publishAndFlush(double yawDegrees, double yawRateDegreesPerSecond) {
+        orientation[0] = yawDegrees;
+        orientation[1] = yawRateDegreesPerSecond;
+        for (LimelightHandle handle : handles) {
+            handle.setRobotOrientation(orientation);
+        }
+        client.flush();
+    }
+}
@@ -0,0 +1,474 @@
+package frc.robot.lib.limelight;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightResults;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightTarget_Barcode;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightTarget_Classifier;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightTarget_Detector;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightTarget_Fiducial;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightTarget_Retro;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Streaming decoder for the Limelight "json" results dump.
+ *
+ * <p>Unlike the ObjectMapper databind path in {@link LimelightHelpers#getLatestResults(String)},
+ * this walks the JSON tokens once, decodes only the target sections it was configured for and
+ * skips the others without building them. Results are written into a caller-owned {@link
+ * LimelightResults} whose target objects and arrays are pooled by this parser, so steady-state
+ * parsing allocates little beyond the Jackson parser itself.
+ *
+ * <p>The target arrays and objects written into the results are owned by this parser and are
+ * overwritten by the next call to {@link #parse}. A parser instance must only be used from one
+ * thread at a time.
+ */
+public class LimelightResultsParser {
+
+    /** Target sections of the results that can be decoded or skipped. */
+    public enum Section {
+        RETRO,
+        FIDUCIAL,
+        CLASSIFIER,
+        DETECTOR,
+        BARCODE
+    }
+
+    // JsonFactory is thread-safe and meant to be shared
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final boolean parseRetro;
+    private final boolean parseFiducial;
+    private final boolean parseClassifier;
+    private final boolean parseDetector;
+    private final boolean parseBarcode;
+
+    private final TargetPool<LimelightTarget_Retro> retros =
+            new TargetPool<>(LimelightTarget_Retro::new, LimelightTarget_Retro[]::new);
+    private final TargetPool<LimelightTarget_Fiducial> fiducials =
+            new TargetPool<>(LimelightTarget_Fiducial::new, LimelightTarget_Fiducial[]::new);
+    private final TargetPool<LimelightTarget_Classifier> classifiers =
+            new TargetPool<>(LimelightTarget_Classifier::new, LimelightTarget_Classifier[]::new);
+    private final TargetPool<LimelightTarget_Detector> detectors =
+            new TargetPool<>(LimelightTarget_Detector::new, LimelightTarget_Detector[]::new);
+    private final TargetPool<LimelightTarget_Barcode> barcodes =
+            new TargetPool<>(LimelightTarget_Barcode::new, LimelightTarget_Barcode[]::new);
+
+    // Scratch space for number arrays of unknown length
+    private double[] scratch = new double[32];
+
+    /**
+     * Creates a parser that decodes only the given target sections.
+     *
+     * @param sections Sections to decode; every other section is skipped
+     */
+    public LimelightResultsParser(Set<Section> sections) {
+        parseRetro = sections.contains(Section.RETRO);
+        parseFiducial = sections.contains(Section.FIDUCIAL);
+        parseClassifier = sections.contains(Section.CLASSIFIER);
+        parseDetector = sections.contains(Section.DETECTOR);
+        parseBarcode = sections.contains(Section.BARCODE);
+    }
+
+    /** Creates a parser that decodes every section. */
+    public LimelightResultsParser() {
+        this(EnumSet.allOf(Section.class));
+    }
+
+    /**
+     * Parses a JSON dump into {@code out}, resetting every field first.
+     *
+     * @param json JSON dump from the Limelight "json" topic
+     * @param out Results object to overwrite
+     * @return True on success. On failure, {@code out.error} describes the problem.
+     */
+    public boolean parse(String json, LimelightResults out) {
+        reset(out);
+        try (JsonParser p = factory.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(p, "expected a JSON object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "pID" -> out.pipelineID = p.getValueAsDouble();
+                    case "tl" -> out.latency_pipeline = p.getValueAsDouble();
+                    case "cl" -> out.latency_capture = p.getValueAsDouble();
+                    case "ts" -> out.timestamp_LIMELIGHT_publish = p.getValueAsDouble();
+                    case "ts_rio" -> out.timestamp_RIOFPGA_capture = p.getValueAsDouble();
+                    case "v" -> out.valid = readBoolean(p);
+                    case "botpose" -> out.botpose = readDoubleArray(p, out.botpose);
+                    case "botpose_wpired" -> out.botpose_wpired = readDoubleArray(p, out.botpose_wpired);
+                    case "botpose_wpiblue" ->
+                            out.botpose_wpiblue = readDoubleArray(p, out.botpose_wpiblue);
+                    case "botpose_tagcount" -> out.botpose_tagcount = p.getValueAsDouble();
+                    case "botpose_span" -> out.botpose_span = p.getValueAsDouble();
+                    case "botpose_avgdist" -> out.botpose_avgdist = p.getValueAsDouble();
+                    case "botpose_avgarea" -> out.botpose_avgarea = p.getValueAsDouble();
+                    case "t6c_rs" ->
+                            out.camerapose_robotspace =
+                                    readDoubleArray(p, out.camerapose_robotspace);
+                    case "Retro" -> {
+                        if (parseRetro) {
+                            readRetros(p);
+                            out.targets_Retro = retros.view();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    case "Fiducial" -> {
+                        if (parseFiducial) {
+                            readFiducials(p);
+                            out.targets_Fiducials = fiducials.view();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    case "Classifier" -> {
+                        if (parseClassifier) {
+                            readClassifiers(p);
+                            out.targets_Classifier = classifiers.view();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    case "Detector" -> {
+                        if (parseDetector) {
+                            readDetectors(p);
+                            out.targets_Detector = detectors.view();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    case "Barcode" -> {
+                        if (parseBarcode) {
+                            readBarcodes(p);
+                            out.targets_Barcode = barcodes.view();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            out.error = "lljson error: " + e.getMessage();
+            return false;
+        }
+    }
+
+    private void reset(LimelightResults out) {
+        out.error = null;
+        out.pipelineID = 0;
+        out.latency_pipeline = 0;
+        out.latency_capture = 0;
+        out.latency_jsonParse = 0;
+        out.timestamp_LIMELIGHT_publish = 0;
+        out.timestamp_RIOFPGA_capture = 0;
+        out.valid = false;
+        Arrays.fill(out.botpose, 0);
+        Arrays.fill(out.botpose_wpired, 0);
+        Arrays.fill(out.botpose_wpiblue, 0);
+        Arrays.fill(out.camerapose_robotspace, 0);
+        out.botpose_tagcount = 0;
+        out.botpose_span = 0;
+        out.botpose_avgdist = 0;
+        out.botpose_avgarea = 0;
+        retros.clear();
+        fiducials.clear();
+        classifiers.clear();
+        detectors.clear();
+        barcodes.clear();
+        out.targets_Retro = retros.view();
+        out.targets_Fiducials = fiducials.view();
+        out.targets_Classifier = classifiers.view();
+        out.targets_Detector = detectors.view();
+        out.targets_Barcode = barcodes.view();
+    }
+
+    private void readRetros(JsonParser p) throws IOException {
+        if (!startArray(p)) {
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            LimelightTarget_Retro t = retros.next();
+            Arrays.fill(t.cameraPose_TargetSpace, 0);
+            Arrays.fill(t.robotPose_FieldSpace, 0);
+            Arrays.fill(t.robotPose_TargetSpace, 0);
+            Arrays.fill(t.targetPose_CameraSpace, 0);
+            Arrays.fill(t.targetPose_RobotSpace, 0);
+            t.ta = t.tx = t.ty = t.tx_pixels = t.ty_pixels = 0;
+            t.tx_nocrosshair = t.ty_nocrosshair = t.ts = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "t6c_ts" -> t.cameraPose_TargetSpace = readDoubleArray(p, t.cameraPose_TargetSpace);
+                    case "t6r_fs" -> t.robotPose_FieldSpace = readDoubleArray(p, t.robotPose_FieldSpace);
+                    case "t6r_ts" -> t.robotPose_TargetSpace = readDoubleArray(p, t.robotPose_TargetSpace);
+                    case "t6t_cs" -> t.targetPose_CameraSpace = readDoubleArray(p, t.targetPose_CameraSpace);
+                    case "t6t_rs" -> t.targetPose_RobotSpace = readDoubleArray(p, t.targetPose_RobotSpace);
+                    case "ta" -> t.ta = p.getValueAsDouble();
+                    case "tx" -> t.tx = p.getValueAsDouble();
+                    case "ty" -> t.ty = p.getValueAsDouble();
+                    case "txp" -> t.tx_pixels = p.getValueAsDouble();
+                    case "typ" -> t.ty_pixels = p.getValueAsDouble();
+                    case "tx_nocross" -> t.tx_nocrosshair = p.getValueAsDouble();
+                    case "ty_nocross" -> t.ty_nocrosshair = p.getValueAsDouble();
+                    case "ts" -> t.ts = p.getValueAsDouble();
+                    default -> p.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readFiducials(JsonParser p) throws IOException {
+        if (!startArray(p)) {
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            LimelightTarget_Fiducial t = fiducials.next();
+            Arrays.fill(t.cameraPose_TargetSpace, 0);
+            Arrays.fill(t.robotPose_FieldSpace, 0);
+            Arrays.fill(t.robotPose_TargetSpace, 0);
+            Arrays.fill(t.targetPose_CameraSpace, 0);
+            Arrays.fill(t.targetPose_RobotSpace, 0);
+            String family = t.fiducialFamily;
+            t.fiducialFamily = null;
+            t.fiducialID = t.ta = t.tx = t.ty = t.tx_pixels = t.ty_pixels = 0;
+            t.tx_nocrosshair = t.ty_nocrosshair = t.ts = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "fID" -> t.fiducialID = p.getValueAsDouble();
+                    case "fam" -> t.fiducialFamily = readString(p, family);
+                    case "t6c_ts" -> t.cameraPose_TargetSpace = readDoubleArray(p, t.cameraPose_TargetSpace);
+                    case "t6r_fs" -> t.robotPose_FieldSpace = readDoubleArray(p, t.robotPose_FieldSpace);
+                    case "t6r_ts" -> t.robotPose_TargetSpace = readDoubleArray(p, t.robotPose_TargetSpace);
+                    case "t6t_cs" -> t.targetPose_CameraSpace = readDoubleArray(p, t.targetPose_CameraSpace);
+                    case "t6t_rs" -> t.targetPose_RobotSpace = readDoubleArray(p, t.targetPose_RobotSpace);
+                    case "ta" -> t.ta = p.getValueAsDouble();
+                    case "tx" -> t.tx = p.getValueAsDouble();
+                    case "ty" -> t.ty = p.getValueAsDouble();
+                    case "txp" -> t.tx_pixels = p.getValueAsDouble();
+                    case "typ" -> t.ty_pixels = p.getValueAsDouble();
+                    case "tx_nocross" -> t.tx_nocrosshair = p.getValueAsDouble();
+                    case "ty_nocross" -> t.ty_nocrosshair = p.getValueAsDouble();
+                    case "ts" -> t.ts = p.getValueAsDouble();
+                    default -> p.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readClassifiers(JsonParser p) throws IOException {
+        if (!startArray(p)) {
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            LimelightTarget_Classifier t = classifiers.next();
+            String className = t.className;
+            t.className = null;
+            t.classID = t.confidence = t.zone = t.tx = t.tx_pixels = t.ty = t.ty_pixels = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "class" -> t.className = readString(p, className);
+                    case "classID" -> t.classID = p.getValueAsDouble();
+                    case "conf" -> t.confidence = p.getValueAsDouble();
+                    case "zone" -> t.zone = p.getValueAsDouble();
+                    case "tx" -> t.tx = p.getValueAsDouble();
+                    case "txp" -> t.tx_pixels = p.getValueAsDouble();
+                    case "ty" -> t.ty = p.getValueAsDouble();
+                    case "typ" -> t.ty_pixels = p.getValueAsDouble();
+                    default -> p.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readDetectors(JsonParser p) throws IOException {
+        if (!startArray(p)) {
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            LimelightTarget_Detector t = detectors.next();
+            String className = t.className;
+            t.className = null;
+            t.classID = t.confidence = t.ta = t.tx = t.ty = t.tx_pixels = t.ty_pixels = 0;
+            t.tx_nocrosshair = t.ty_nocrosshair = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "class" -> t.className = readString(p, className);
+                    case "classID" -> t.classID = p.getValueAsDouble();
+                    case "conf" -> t.confidence = p.getValueAsDouble();
+                    case "ta" -> t.ta = p.getValueAsDouble();
+                    case "tx" -> t.tx = p.getValueAsDouble();
+                    case "ty" -> t.ty = p.getValueAsDouble();
+                    case "txp" -> t.tx_pixels = p.getValueAsDouble();
+                    case "typ" -> t.ty_pixels = p.getValueAsDouble();
+                    case "tx_nocross" -> t.tx_nocrosshair = p.getValueAsDouble();
+                    case "ty_nocross" -> t.ty_nocrosshair = p.getValueAsDouble();
+                    default -> p.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readBarcodes(JsonParser p) throws IOException {
+        if (!startArray(p)) {
+            return;
+        }
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            LimelightTarget_Barcode t = barcodes.next();
+            String family = t.family;
+            String data = t.data;
+            t.family = null;
+            t.data = null;
+            t.corners = null;
+            t.tx_pixels = t.ty_pixels = t.tx = t.ty = t.tx_nocrosshair = t.ty_nocrosshair = t.ta = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "fam" -> t.family = readString(p, family);
+                    case "data" -> t.data = readString(p, data);
+                    case "txp" -> t.tx_pixels = p.getValueAsDouble();
+                    case "typ" -> t.ty_pixels = p.getValueAsDouble();
+                    case "tx" -> t.tx = p.getValueAsDouble();
+                    case "ty" -> t.ty = p.getValueAsDouble();
+                    case "tx_nocross" -> t.tx_nocrosshair = p.getValueAsDouble();
+                    case "ty_nocross" -> t.ty_nocrosshair = p.getValueAsDouble();
+                    case "ta" -> t.ta = p.getValueAsDouble();
+                    case "pts" -> t.corners = readCorners(p);
+                    default -> p.skipChildren();
+                }
+            }
+        }
+    }
+
+    // True if the current token starts an array; null and other values are skipped
+    private static boolean startArray(JsonParser p) throws IOException {
+        if (p.currentToken() == JsonToken.START_ARRAY) {
+            return true;
+        }
+        p.skipChildren();
+        return false;
+    }
+
+    private static boolean readBoolean(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        return p.getValueAsDouble() != 0.0;
+    }
+
+    // Reads a number array, reusing {@code existing} when the length matches
+    private double[] readDoubleArray(JsonParser p, double[] existing) throws IOException {
+        if (!startArray(p)) {
+            return existing;
+        }
+        int n = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (n == scratch.length) {
+                scratch = Arrays.copyOf(scratch, n * 2);
+            }
+            scratch[n++] = p.getValueAsDouble();
+        }
+        double[] result = existing != null && existing.length == n ? existing : new double[n];
+        System.arraycopy(scratch, 0, result, 0, n);
+        return result;
+    }
+
+    // Reads a string, returning {@code previous} instead of a new String when the text is equal
+    private static String readString(JsonParser p, String previous) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            return null;
+        }
+        if (previous != null) {
+            char[] chars = p.getTextCharacters();
+            int offset = p.getTextOffset();
+            int length = p.getTextLength();
+            if (length == previous.length()) {
+                boolean same = true;
+                for (int i = 0; i < length && same; i++) {
+                    same = chars[offset + i] == previous.charAt(i);
+                }
+                if (same) {
+                    return previous;
+                }
+            }
+        }
+        return p.getText();
+    }
+
+    private double[][] readCorners(JsonParser p) throws IOException {
+        if (!startArray(p)) {
+            return null;
+        }
+        ArrayList<double[]> corners = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            corners.add(readDoubleArray(p, null));
+        }
+        return corners.toArray(new double[0][]);
+    }
+
+    /**
+     * Grow-only pool of target objects. Exact-length arrays over the pool are cached per length, so
+     * callers still see arrays whose length is the target count.
+     */
+    private static final class TargetPool<T> {
+        private final Supplier<T> factory;
+        private final IntFunction<T[]> arrayFactory;
+        private final ArrayList<T> items = new ArrayList<>();
+        private final ArrayList<T[]> views = new ArrayList<>();
+        private int count = 0;
+
+        TargetPool(Supplier<T> factory, IntFunction<T[]> arrayFactory) {
+            this.factory = factory;
+            this.arrayFactory = arrayFactory;
+        }
+
+        void clear() {
+            count = 0;
+        }
+
+        T next() {
+            if (count == items.size()) {
+                items.add(factory.get());
+            }
+            return items.get(count++);
+        }
+
+        T[] view() {
+            while (views.size() <= count) {
+                views.add(null);
+            }
+            T[] view = views.get(count);
+            if (view == null) {
+                view = arrayFactory.apply(count);
+                for (int i = 0; i < count; i++) {
+                    view[i] = items.get(i);
+                }
+                views.set(count, view);
+            }
+            return view;
+        }
+    }
+}
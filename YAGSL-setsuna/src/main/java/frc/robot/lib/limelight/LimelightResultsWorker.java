@@ -0,0 +1,179 @@
+package frc.robot.lib.limelight;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringSubscriber;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightResults;
+import frc.robot.lib.limelight.LimelightResultsParser.Section;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parses a Limelight's "json" results on a background thread instead of the robot loop.
+ *
+ * <p>An NT listener stores each new JSON string in a single pending slot and wakes the worker
+ * thread; if the worker is still busy, the older string is replaced and counted as dropped. The
+ * worker parses with {@link LimelightResultsParser} into one of three result buffers and hands the
+ * newest one to the robot loop through a single atomic slot, so neither side ever blocks.
+ *
+ * <p>Call {@link #refresh()} once per robot loop, then read {@link #getLatest()} as often as needed
+ * during that loop. The returned results are reused and stay valid only until the next {@link
+ * #refresh()}. Both methods must be called from the same thread.
+ */
+public class LimelightResultsWorker implements AutoCloseable {
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH = 0b100;
+
+    private static final class Slot {
+        final LimelightResultsParser parser;
+        final LimelightResults results = new LimelightResults();
+
+        Slot(Set<Section> sections) {
+            parser = new LimelightResultsParser(sections);
+        }
+    }
+
+    private final String limelightName;
+    private final NetworkTableInstance instance;
+    private final StringSubscriber jsonSubscriber;
+    private final int listenerHandle;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // Newest unparsed JSON, written by the NT listener and taken by the worker
+    private final AtomicReference<String> pendingJson = new AtomicReference<>();
+
+    // Triple buffer: the worker owns backIndex, the robot loop owns frontIndex, and the middle
+    // slot (index | FRESH) is swapped atomically between them
+    private final Slot[] slots = new Slot[3];
+    private int backIndex = 0;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int frontIndex = 2;
+    private boolean hasResults = false;
+
+    private final AtomicLong parsedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong parseErrors = new AtomicLong();
+
+    /**
+     * Creates the worker and registers its NT listener. Parsing starts after {@link #start()}.
+     *
+     * @param client Client for the NetworkTables instance the Limelight publishes to
+     * @param limelightName Name of the Limelight camera
+     * @param sections Result sections to decode
+     */
+    public LimelightResultsWorker(
+            LimelightClient client, String limelightName, Set<Section> sections) {
+        this.limelightName = limelightName;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(sections);
+        }
+        var table = client.getTable(limelightName);
+        this.instance = table.getInstance();
+        this.jsonSubscriber = table.getStringTopic("json").subscribe("");
+        this.thread = new Thread(this::run, "LimelightJson-" + limelightName);
+        this.thread.setDaemon(true);
+        this.listenerHandle =
+                instance.addListener(
+                        jsonSubscriber,
+                        EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                        this::onJson);
+    }
+
+    public LimelightResultsWorker(String limelightName, Set<Section> sections) {
+        this(LimelightClient.getDefault(), limelightName, sections);
+    }
+
+    public LimelightResultsWorker(String limelightName) {
+        this(limelightName, EnumSet.allOf(Section.class));
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    // Runs on the NT listener thread
+    private void onJson(NetworkTableEvent event) {
+        if (event.valueData == null) {
+            return;
+        }
+        if (pendingJson.getAndSet(event.valueData.value.getString()) != null) {
+            droppedFrames.incrementAndGet();
+        }
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            String json = pendingJson.getAndSet(null);
+            if (json == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            Slot slot = slots[backIndex];
+            long start = System.nanoTime();
+            if (!slot.parser.parse(json, slot.results)) {
+                parseErrors.incrementAndGet();
+            }
+            slot.results.latency_jsonParse = (System.nanoTime() - start) * .000001;
+            parsedFrames.incrementAndGet();
+
+            // Publish; if the previous result was never picked up it is dropped
+            int previous = middle.getAndSet(backIndex | FRESH);
+            if ((previous & FRESH) != 0) {
+                droppedFrames.incrementAndGet();
+            }
+            backIndex = previous & INDEX_MASK;
+        }
+    }
+
+    /**
+     * Picks up the newest parsed results, if any arrived since the last call. Call once per loop.
+     *
+     * @return True if new results were picked up
+     */
+    public boolean refresh() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        frontIndex = middle.getAndSet(frontIndex) & INDEX_MASK;
+        hasResults = true;
+        return true;
+    }
+
+    /**
+     * @return Results picked up by the last {@link #refresh()}, or null if none have been parsed
+     *     yet. Valid until the next {@link #refresh()}.
+     */
+    public LimelightResults getLatest() {
+        return hasResults ? slots[frontIndex].results : null;
+    }
+
+    public String getLimelightName() {
+        return limelightName;
+    }
+
+    public long getParsedFrameCount() {
+        return parsedFrames.get();
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrames.get();
+    }
+
+    public long getParseErrorCount() {
+        return parseErrors.get();
+    }
+
+    @Override
+    public void close() {
+        instance.removeListener(listenerHandle);
+        running = false;
+        LockSupport.unpark(thread);
+        jsonSubscriber.close();
+    }
+}
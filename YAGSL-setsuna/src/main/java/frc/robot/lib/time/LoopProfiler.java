@@ -0,0 +1,148 @@
+package frc.robot.lib.time;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//
+// ループ内の各区間(サブシステムのperiodic、コマンドのexecute、ログ出力など)の
+// 処理時間をSystem.nanoTimeで計測し、直近のp50/p99/maxを1秒ごとにNTへ公開するクラス。
+// 計測値は事前確保した配列に書き込むので、計測中はオブジェクトを生成しない。
+// メインループのスレッドからのみ呼ぶこと。
+//
+// 使い方:
+//   int section = LoopProfiler.getInstance().registerSection("Swerve/periodic");
+//   LoopProfiler.getInstance().begin(section);
+//   ...
+//   LoopProfiler.getInstance().end(section);
+//
+
+public class LoopProfiler {
+    // 登録できる区間の最大数
+    public static final int MAX_SECTIONS = 64;
+
+    // 区間ごとに保持する直近の計測数 (50Hzで約10秒分)
+    public static final int WINDOW_SIZE = 512;
+
+    // 公開周期
+    private static final long kPublishPeriodNanos = 1_000_000_000L;
+
+    private static final LoopProfiler instance = new LoopProfiler();
+
+    public static LoopProfiler getInstance() {
+        return instance;
+    }
+
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("LoopProfiler");
+
+    private final String[] names = new String[MAX_SECTIONS];
+    private final long[] startNanos = new long[MAX_SECTIONS];
+    private final long[][] windows = new long[MAX_SECTIONS][WINDOW_SIZE];
+    private final int[] counts = new int[MAX_SECTIONS];
+    private final int[] nextIndex = new int[MAX_SECTIONS];
+    private final DoublePublisher[] p50Publishers = new DoublePublisher[MAX_SECTIONS];
+    private final DoublePublisher[] p99Publishers = new DoublePublisher[MAX_SECTIONS];
+    private final DoublePublisher[] maxPublishers = new DoublePublisher[MAX_SECTIONS];
+    private int sectionCount = 0;
+
+    // パーセンタイル計算用の作業配列
+    private final long[] sorted = new long[WINDOW_SIZE];
+
+    // コマンド名ごとの区間ID
+    // その場で作られるコマンド(Commands.runやパス追従など)のインスタンスを保持し続けないよう、名前で引く
+    private final Map<String, Integer> commandSections = new HashMap<>();
+    private int openCommandSection = -1;
+
+    private long lastPublishNanos = System.nanoTime();
+
+    private LoopProfiler() {}
+
+    // 区間を登録してIDを返す。同じ名前は同じIDになる。登録数の上限を超えたら-1。
+    public synchronized int registerSection(String name) {
+        for (int i = 0; i < sectionCount; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        if (sectionCount == MAX_SECTIONS) {
+            return -1;
+        }
+        int id = sectionCount++;
+        names[id] = name;
+        p50Publishers[id] = table.getDoubleTopic(name + "/P50Ms").publish();
+        p99Publishers[id] = table.getDoubleTopic(name + "/P99Ms").publish();
+        maxPublishers[id] = table.getDoubleTopic(name + "/MaxMs").publish();
+        return id;
+    }
+
+    public void begin(int section) {
+        if (section >= 0) {
+            startNanos[section] = System.nanoTime();
+        }
+    }
+
+    public void end(int section) {
+        if (section < 0) {
+            return;
+        }
+        long[] window = windows[section];
+        window[nextIndex[section]] = System.nanoTime() - startNanos[section];
+        nextIndex[section] = (nextIndex[section] + 1) % WINDOW_SIZE;
+        if (counts[section] < WINDOW_SIZE) {
+            counts[section]++;
+        }
+    }
+
+    // スケジュール中の各コマンドのexecuteを計測する。
+    // CommandSchedulerはexecute後のフックを持たないので、次のコマンドのexecute直前
+    // (または endCommandSections) までを1区間とする。(isFinished/endの時間も含む)
+    public void instrumentCommands(CommandScheduler scheduler) {
+        scheduler.onCommandExecute(this::beginCommandSection);
+    }
+
+    private void beginCommandSection(Command command) {
+        endCommandSections();
+        String name = command.getName();
+        Integer section = commandSections.get(name);
+        if (section == null) {
+            section = registerSection("Commands/" + name);
+            commandSections.put(name, section);
+        }
+        openCommandSection = section;
+        begin(openCommandSection);
+    }
+
+    // CommandScheduler.run()の後に呼んで、最後のコマンドの区間を閉じる
+    public void endCommandSections() {
+        if (openCommandSection >= 0) {
+            end(openCommandSection);
+            openCommandSection = -1;
+        }
+    }
+
+    // 前回の公開から1秒以上経っていれば、各区間のp50/p99/maxを公開する
+    public void publishIfDue() {
+        long now = System.nanoTime();
+        if (now - lastPublishNanos < kPublishPeriodNanos) {
+            return;
+        }
+        lastPublishNanos = now;
+        for (int i = 0; i < sectionCount; i++) {
+            int count = counts[i];
+            if (count == 0) {
+                continue;
+            }
+            System.arraycopy(windows[i], 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            p50Publishers[i].set(sorted[(count - 1) / 2] * 1e-6);
+            p99Publishers[i].set(sorted[(int) ((count - 1) * 0.99)] * 1e-6);
+            maxPublishers[i].set(sorted[count - 1] * 1e-6);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.util.concurrent.ConcurrentSkipListMap;
 
 //
 // 任意の型のセンサ計測値を時系列順に保存するための機能を提供しているクラス。
+// 書き込みスレッドが1つだけならSingleWriterTimeInterpolatableBufferの方が軽い。
 // 
 
 public class ConcurrentTimeInterpolatableBuffer<T> {
@@ -116,6 +117,18 @@ public class ConcurrentTimeInterpolatableBuffer<T> {
         return m_pastSnapshots.lastEntry();
     }
 
+    // 最古のサンプルの時刻。空ならNaN。
+    public double getOldestTimestamp() {
+        var first = m_pastSnapshots.firstEntry();
+        return first == null ? Double.NaN : first.getKey();
+    }
+
+    // 最新のサンプルの時刻。空ならNaN。
+    public double getLatestTimestamp() {
+        var latest = m_pastSnapshots.lastEntry();
+        return latest == null ? Double.NaN : latest.getKey();
+    }
+
     // バッファのゲッター
     public ConcurrentNavigableMap<Double, T> getInternalBuffer() {
         return m_pastSnapshots;
@@ -0,0 +1,279 @@
+package frc.robot.lib.util;
+
+//
+// double型のセンサ計測値を時系列順に保存するためのリングバッファ。
+// ConcurrentTimeInterpolatableBuffer<Double>の代わりに使う。時刻と値をプリミティブ配列に保持し、
+// 読み書きともdoubleで受け渡すのでオブジェクトを生成しない。(Optionalの代わりに既定値やNaNを返す)
+//
+
+public class ConcurrentTimeInterpolatableDoubleBuffer {
+
+    // 1秒分の履歴を250Hzで書き込んでも溢れない容量
+    public static final int kDefaultCapacity = 512;
+
+    // 区間集計でデータが無いことを示す値
+    public static final double NO_DATA = Double.NaN;
+
+    private final double m_historySize;
+
+    // 時刻昇順に並んだリング。m_headが最古のサンプルの位置。
+    private final double[] m_times;
+    private final double[] m_values;
+    private int m_head = 0;
+    private int m_size = 0;
+
+    private ConcurrentTimeInterpolatableDoubleBuffer(double historySizeSeconds, int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.m_historySize = historySizeSeconds;
+        this.m_times = new double[capacity];
+        this.m_values = new double[capacity];
+    }
+
+    // バッファ作成 (線形補間)
+    public static ConcurrentTimeInterpolatableDoubleBuffer createBuffer(
+            double historySizeSeconds) {
+        return new ConcurrentTimeInterpolatableDoubleBuffer(historySizeSeconds, kDefaultCapacity);
+    }
+
+    public static ConcurrentTimeInterpolatableDoubleBuffer createBuffer(
+            double historySizeSeconds, int capacity) {
+        return new ConcurrentTimeInterpolatableDoubleBuffer(historySizeSeconds, capacity);
+    }
+
+    // 論理インデックス(0が最古)をリング上の位置に変換
+    private int physical(int logicalIndex) {
+        int index = m_head + logicalIndex;
+        return index >= m_times.length ? index - m_times.length : index;
+    }
+
+    // サンプル作成
+    public synchronized void addSample(double timeSeconds, double sample) {
+        if (m_size == 0 || timeSeconds > m_times[physical(m_size - 1)]) {
+            // 通常は時刻順に届くので末尾に追加するだけ
+            if (m_size == m_times.length) {
+                // 満杯なら最古を上書き
+                m_head = physical(1);
+                m_size--;
+            }
+            int tail = physical(m_size);
+            m_times[tail] = timeSeconds;
+            m_values[tail] = sample;
+            m_size++;
+        } else {
+            insertOutOfOrder(timeSeconds, sample);
+        }
+
+        // 配列サイズを超えたサンプルを削除
+        cleanUp(timeSeconds);
+    }
+
+    // 遅れて届いたサンプルを時刻順の位置に挿入する。(まれにしか起きない)
+    private void insertOutOfOrder(double timeSeconds, double sample) {
+        int index = lowerBound(timeSeconds);
+        if (index < m_size && m_times[physical(index)] == timeSeconds) {
+            // 同じ時刻は上書き
+            m_values[physical(index)] = sample;
+            return;
+        }
+        if (m_size == m_times.length) {
+            if (index == 0) {
+                // 満杯で最古より古いサンプルは捨てる
+                return;
+            }
+            m_head = physical(1);
+            m_size--;
+            index--;
+        }
+        for (int i = m_size; i > index; i--) {
+            int to = physical(i);
+            int from = physical(i - 1);
+            m_times[to] = m_times[from];
+            m_values[to] = m_values[from];
+        }
+        m_times[physical(index)] = timeSeconds;
+        m_values[physical(index)] = sample;
+        m_size++;
+    }
+
+    // timeSecondsを超えたサンプルを削除
+    public synchronized void cleanUp(double time) {
+        double oldest = time - m_historySize;
+        while (m_size > 0 && m_times[m_head] < oldest) {
+            m_head = physical(1);
+            m_size--;
+        }
+    }
+
+    // 指定されたサンプル全消去
+    public synchronized void clear() {
+        m_head = 0;
+        m_size = 0;
+    }
+
+    public synchronized boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    public synchronized int size() {
+        return m_size;
+    }
+
+    // timeSeconds以上となる最初の論理インデックスを二分探索で求める。
+    private int lowerBound(double timeSeconds) {
+        int low = 0;
+        int high = m_size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (m_times[physical(mid)] < timeSeconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 要求時刻の値を補間して返す。サンプルが無ければdefaultValueを返す。
+    public synchronized double getSample(double timeSeconds, double defaultValue) {
+        if (m_size == 0) {
+            return defaultValue;
+        }
+
+        // 要求時刻以後で最も近いサンプル。
+        int top = lowerBound(timeSeconds);
+        if (top == m_size) {
+            return m_values[physical(m_size - 1)];
+        }
+
+        int topIndex = physical(top);
+        if (top == 0 || m_times[topIndex] == timeSeconds) {
+            return m_values[topIndex];
+        }
+
+        // 要求時刻以前で最も近いサンプル。
+        int bottomIndex = physical(top - 1);
+
+        // ２つの値を線形に補間して返している。
+        double bottomTime = m_times[bottomIndex];
+        double t = (timeSeconds - bottomTime) / (m_times[topIndex] - bottomTime);
+        return m_values[bottomIndex] + (m_values[topIndex] - m_values[bottomIndex]) * t;
+    }
+
+    // 最新のサンプルの値を返す。サンプルが無ければdefaultValueを返す。
+    public synchronized double getLatestValue(double defaultValue) {
+        if (m_size == 0) {
+            return defaultValue;
+        }
+        return m_values[physical(m_size - 1)];
+    }
+
+    // 最新のサンプルの時刻を返す。サンプルが無ければNaNを返す。
+    public synchronized double getLatestTimestamp() {
+        if (m_size == 0) {
+            return Double.NaN;
+        }
+        return m_times[physical(m_size - 1)];
+    }
+
+    // ---- 区間集計 ----
+    // 区間[minTime, maxTime)のサンプルを1回走査して集計する。オブジェクトは生成しない。
+    // 変更前のsubMap(minTime, maxTime)と同じく、maxTimeちょうどのサンプルは含めない。
+    // 区間にデータが無い場合はNO_DATAを返す。(Double.isNaNで判定する)
+
+    // 区間内の最小値
+    public synchronized double getMinInRange(double minTime, double maxTime) {
+        double min = NO_DATA;
+        for (int i = lowerBound(minTime); i < m_size; i++) {
+            int index = physical(i);
+            if (m_times[index] >= maxTime) {
+                break;
+            }
+            if (Double.isNaN(min) || m_values[index] < min) {
+                min = m_values[index];
+            }
+        }
+        return min;
+    }
+
+    // 区間内の最大値
+    public synchronized double getMaxInRange(double minTime, double maxTime) {
+        double max = NO_DATA;
+        for (int i = lowerBound(minTime); i < m_size; i++) {
+            int index = physical(i);
+            if (m_times[index] >= maxTime) {
+                break;
+            }
+            if (Double.isNaN(max) || m_values[index] > max) {
+                max = m_values[index];
+            }
+        }
+        return max;
+    }
+
+    // 区間内で絶対値が最大のサンプル(符号付き)。絶対値が同じなら正の値を優先する。
+    public synchronized double getMaxAbsInRange(double minTime, double maxTime) {
+        double maxAbs = NO_DATA;
+        for (int i = lowerBound(minTime); i < m_size; i++) {
+            int index = physical(i);
+            if (m_times[index] >= maxTime) {
+                break;
+            }
+            double value = m_values[index];
+            if (Double.isNaN(maxAbs)
+                    || Math.abs(value) > Math.abs(maxAbs)
+                    || (Math.abs(value) == Math.abs(maxAbs) && value > maxAbs)) {
+                maxAbs = value;
+            }
+        }
+        return maxAbs;
+    }
+
+    // 区間内サンプルの平均値
+    public synchronized double getMeanInRange(double minTime, double maxTime) {
+        double sum = 0.0;
+        int count = 0;
+        for (int i = lowerBound(minTime); i < m_size; i++) {
+            int index = physical(i);
+            if (m_times[index] >= maxTime) {
+                break;
+            }
+            sum += m_values[index];
+            count++;
+        }
+        return count == 0 ? NO_DATA : sum / count;
+    }
+
+    // 区間内の積分値 (サンプル間を線形補間した台形積分)
+    // データの無い時間は外挿せず、サンプルが存在する時間帯だけを積分する。
+    // 端点1点の有無は積分値に影響しないので、区間の長さが0のときだけNO_DATAを返す。
+    public synchronized double getIntegralInRange(double minTime, double maxTime) {
+        if (m_size == 0) {
+            return NO_DATA;
+        }
+        double start = Math.max(minTime, m_times[m_head]);
+        double end = Math.min(maxTime, m_times[physical(m_size - 1)]);
+        if (start >= end) {
+            return NO_DATA;
+        }
+
+        double integral = 0.0;
+        double prevTime = start;
+        double prevValue = getSample(start, 0.0);
+        for (int i = lowerBound(start); i < m_size; i++) {
+            int index = physical(i);
+            double time = m_times[index];
+            if (time >= end) {
+                break;
+            }
+            if (time > prevTime) {
+                integral += 0.5 * (prevValue + m_values[index]) * (time - prevTime);
+                prevTime = time;
+                prevValue = m_values[index];
+            }
+        }
+        integral += 0.5 * (prevValue + getSample(end, 0.0)) * (end - prevTime);
+        return integral;
+    }
+}
@@ -4,7 +4,13 @@
 
 package frc.robot.lib.util;
 
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.util.Units;
+import frc.robot.sim.SimulatedLimelightConfig;
+import frc.robot.subsystems.vision.VisionCameraConfig;
+
+import java.util.List;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
@@ -23,11 +29,54 @@ public final class Constants {
   public static class VisionConstants {
     public static final boolean useMegaTag2 = true;
     public static final String limelightName = "limelight";
+
+    // 位置推定に使うカメラ一覧 (カメラを増やすときはここに追加する)
+    public static final List<VisionCameraConfig> cameras =
+        List.of(new VisionCameraConfig(limelightName));
+
+    // ---- ビジョンとオドメトリの照合 ----
+    // この距離(m)以上オドメトリとずれている1タグの推定は捨てる
+    public static final double maxSingleTagInnovationMeters = 1.0;
+
+    // この角速度(rad/s)以上で旋回中のフレームは捨てる (ブレとMegaTag2の姿勢ずれが大きい)
+    public static final double maxYawRateRadPerSec = Units.degreesToRadians(720.0);
+
+    // 撮影時刻の前に角速度を見る区間 (s)
+    public static final double yawRateLookbackSeconds = 0.1;
+
+    // 標準偏差モデルの係数 [定数, 距離^2, あいまいさ, 1/枚数, 間隔, 面積]
+    // ./gradlew calibrateVisionStdDevs -PvisionLog=<ログ> で求めた値に置き換える
+    public static final double[] stdDevModelCoefficients = {0.1, 0.05, 1.0, 0.4, -0.05, -0.02};
+
+    // XYの標準偏差の下限 (m)
+    public static final double minXYStdDevMeters = 0.05;
+
+    // ずれ(m)・角速度(rad/s)がこの値のとき標準偏差を2倍にする
+    public static final double innovationScaleMeters = 0.5;
+    public static final double yawRateScaleRadPerSec = Math.PI;
+
+    // MegaTag2の向きはジャイロ由来なので、向きは推定に使わない
+    public static final double megaTag2ThetaStdDev = 9999999.0;
+
+    // ---- シミュレーション ----
+    // シミュレーションでNTへ検出結果を公開するカメラ (camerasと同じ名前にする)
+    // 取り付け位置: ロボット中心から前0.3m・上0.25m、15度上向き
+    public static final List<SimulatedLimelightConfig> simCameras =
+        List.of(
+            new SimulatedLimelightConfig(
+                limelightName,
+                new Transform3d(
+                    0.3, 0.0, 0.25, new Rotation3d(0.0, Units.degreesToRadians(-15.0), 0.0))));
   }
 
   public static class FieldConstants {
   }
 
+  public static class DriveConstants {
+    // オドメトリスレッドの更新周波数 (Hz)
+    public static final double odometryFrequencyHz = 250.0;
+  }
+
   public static class SemiAutoConstants {
     // 速度係数 (m/s)/m
     public static final double translationGain = 1.2;
@@ -45,6 +94,24 @@ public final class Constants {
     public static final double planeDeadbandMeter = 0.03;
     public static final double thetaDeadbandDeg = 1;
     public static final double thetaDeadbandRad = Math.toRadians(thetaDeadbandDeg);
+
+    // targetpose_robotspaceとtl/clを同じフレームとみなすNT時刻の差 (マイクロ秒)
+    public static final long latencyPairingToleranceMicros = 20_000;
+
+    // タグを見失っても目標を保持してオドメトリだけで追従する時間 (s)
+    public static final double targetCoastSeconds = 0.3;
+
+    // 目標の信頼度が1/eに下がる時間 (s)
+    public static final double targetConfidenceTimeConstantSeconds = 0.15;
+
+    // 信頼度がこれを下回ったら追従をやめて停止する (0.15秒の時定数で約0.24秒)
+    public static final double targetMinConfidence = 0.2;
+
+    // 新しい観測への追従の割合 (1なら平滑化しない)
+    public static final double targetFilterGain = 0.5;
+
+    // これ以上離れた観測は別の目標とみなす (m)
+    public static final double targetResetDistanceMeter = 0.5;
     
   }
   public static final double maxSpeed  = Units.feetToMeters(4.5);
@@ -0,0 +1,126 @@
+package frc.robot.lib.util;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+import org.littletonrobotics.junction.Logger;
+
+//
+// AdvantageKitへのログ出力を間引くためのクラス。
+// キーごとにチャンネルを作り、前回出力した値を覚えておいて変化が無ければ出力しない。
+// また、チャンネルごとに何周期に1回出力するか(decimation)を指定できる。
+// (50Hzのループでdecimation=5なら10Hz)
+//
+// 使い方:
+//   nextCycle()を毎周期1回呼んでから、各チャンネルのrecordを呼ぶ。
+//
+
+public class RateLimitedLogger {
+    private long cycle = 0;
+
+    // 周期を1つ進める。各チャンネルのrecordより前に毎周期1回呼ぶ。
+    public void nextCycle() {
+        cycle++;
+    }
+
+    public DoubleChannel doubleChannel(String key, int decimation) {
+        return new DoubleChannel(key, decimation);
+    }
+
+    public LongChannel longChannel(String key, int decimation) {
+        return new LongChannel(key, decimation);
+    }
+
+    public ChassisSpeedsChannel chassisSpeedsChannel(String key, int decimation) {
+        return new ChassisSpeedsChannel(key, decimation);
+    }
+
+    // 今の周期がdecimationの出力タイミングか
+    private boolean isDue(int decimation) {
+        return decimation <= 1 || cycle % decimation == 0;
+    }
+
+    public final class DoubleChannel {
+        private final String key;
+        private final int decimation;
+        private boolean hasValue = false;
+        private double lastValue;
+
+        private DoubleChannel(String key, int decimation) {
+            this.key = key;
+            this.decimation = decimation;
+        }
+
+        // NaNはデータ無しとして出力しない
+        public void record(double value) {
+            if (Double.isNaN(value) || !isDue(decimation)) {
+                return;
+            }
+            if (hasValue && Double.doubleToLongBits(value) == Double.doubleToLongBits(lastValue)) {
+                return;
+            }
+            hasValue = true;
+            lastValue = value;
+            Logger.recordOutput(key, value);
+        }
+    }
+
+    public final class LongChannel {
+        private final String key;
+        private final int decimation;
+        private boolean hasValue = false;
+        private long lastValue;
+
+        private LongChannel(String key, int decimation) {
+            this.key = key;
+            this.decimation = decimation;
+        }
+
+        public void record(long value) {
+            if (!isDue(decimation) || (hasValue && value == lastValue)) {
+                return;
+            }
+            hasValue = true;
+            lastValue = value;
+            Logger.recordOutput(key, value);
+        }
+    }
+
+    public final class ChassisSpeedsChannel {
+        private final String key;
+        private final int decimation;
+
+        // 前回出力した値 (出力用の構造体も使い回す)
+        private final ChassisSpeeds lastValue = new ChassisSpeeds();
+        private boolean hasValue = false;
+
+        private ChassisSpeedsChannel(String key, int decimation) {
+            this.key = key;
+            this.decimation = decimation;
+        }
+
+        public void record(ChassisSpeeds value) {
+            if (value == null) {
+                return;
+            }
+            record(value.vxMetersPerSecond, value.vyMetersPerSecond, value.omegaRadiansPerSecond);
+        }
+
+        // 成分で受け取る版 (呼び出し側でChassisSpeedsを作らずに済む)
+        public void record(double vx, double vy, double omega) {
+            if (!isDue(decimation)) {
+                return;
+            }
+            if (hasValue
+                    && vx == lastValue.vxMetersPerSecond
+                    && vy == lastValue.vyMetersPerSecond
+                    && omega == lastValue.omegaRadiansPerSecond) {
+                return;
+            }
+            hasValue = true;
+            lastValue.vxMetersPerSecond = vx;
+            lastValue.vyMetersPerSecond = vy;
+            lastValue.omegaRadiansPerSecond = omega;
+            Logger.recordOutput(key, lastValue);
+        }
+    }
+}
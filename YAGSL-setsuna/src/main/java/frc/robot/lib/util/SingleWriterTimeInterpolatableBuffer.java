@@ -0,0 +1,283 @@
+package frc.robot.lib.util;
+
+import edu.wpi.first.math.interpolation.Interpolatable;
+import edu.wpi.first.math.interpolation.Interpolator;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+//
+// 任意の型のセンサ計測値を時系列順に保存するリングバッファ。
+// ConcurrentTimeInterpolatableBufferと同じ使い方ができるが、書き込みスレッドが1つだけの前提で、
+// 事前確保した配列とシーケンスカウンタ(seqlock)を使う。
+// 書き込みは配列を上書きするだけでノードを生成せず、読み込みはロックを取らずに
+// シーケンスが変化していなければ一貫した前後サンプルの組を得られる。
+// addSample/cleanUp/clearは同じスレッドから呼ぶこと。読み込みはどのスレッドからでもよい。
+//
+
+public class SingleWriterTimeInterpolatableBuffer<T> {
+
+    // m_ はメンバ変数(オブジェクト破棄まで維持される変数)であることを示す。
+
+    private final double m_historySize;
+    private final Interpolator<T> m_interpolatingFunc;
+
+    // 時刻昇順に並んだリング。m_headが最古のサンプルの位置。
+    private final double[] m_times;
+    private final Object[] m_samples;
+    private int m_head = 0;
+    private int m_size = 0;
+
+    // 奇数の間は書き込み中。読み込み側は前後で値が変わっていたら読み直す。
+    private volatile long m_sequence = 0;
+
+    private SingleWriterTimeInterpolatableBuffer(
+            Interpolator<T> interpolateFunction, double historySizeSeconds, int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.m_historySize = historySizeSeconds;
+        this.m_interpolatingFunc = interpolateFunction;
+        this.m_times = new double[capacity];
+        this.m_samples = new Object[capacity];
+    }
+
+    // バッファ作成 (線形補間)
+    public static <T> SingleWriterTimeInterpolatableBuffer<T> createBuffer(
+            Interpolator<T> interpolateFunction, double historySizeSeconds, int capacity) {
+        return new SingleWriterTimeInterpolatableBuffer<>(
+                interpolateFunction, historySizeSeconds, capacity);
+    }
+
+    public static <T extends Interpolatable<T>> SingleWriterTimeInterpolatableBuffer<T> createBuffer(
+            double historySizeSeconds, int capacity) {
+        return new SingleWriterTimeInterpolatableBuffer<>(
+                Interpolatable::interpolate, historySizeSeconds, capacity);
+    }
+
+    // サンプル作成
+    public void addSample(double timeSeconds, T sample) {
+        long seq = beginWrite();
+        writeSample(timeSeconds, sample);
+
+        // 配列サイズを超えたサンプルを削除
+        removeOlderThan(timeSeconds - m_historySize);
+        endWrite(seq);
+    }
+
+    // timeSecondsを超えたサンプルを削除
+    public void cleanUp(double time) {
+        long seq = beginWrite();
+        removeOlderThan(time - m_historySize);
+        endWrite(seq);
+    }
+
+    // 指定されたサンプル全消去
+    public void clear() {
+        long seq = beginWrite();
+        m_head = 0;
+        m_size = 0;
+        Arrays.fill(m_samples, null);
+        endWrite(seq);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Optional<T> getSample(double timeSeconds) {
+        double bottomTime;
+        double topTime;
+        Object bottom;
+        Object top;
+
+        // 書き込みと重なったら読み直す
+        while (true) {
+            long seq = m_sequence;
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int size = m_size;
+            bottom = null;
+            top = null;
+            bottomTime = 0.0;
+            topTime = 0.0;
+            if (size > 0) {
+                int topLogical = lowerBound(timeSeconds, size);
+                if (topLogical < size) {
+                    int topIndex = physical(topLogical);
+                    topTime = m_times[topIndex];
+                    top = m_samples[topIndex];
+                }
+                if (topLogical > 0) {
+                    int bottomIndex = physical(topLogical - 1);
+                    bottomTime = m_times[bottomIndex];
+                    bottom = m_samples[bottomIndex];
+                }
+            }
+            VarHandle.loadLoadFence();
+            if (m_sequence == seq) {
+                break;
+            }
+        }
+
+        if (top == null && bottom == null) {
+            return Optional.empty();
+        } else if (top == null) {
+            return Optional.of((T) bottom);
+        } else if (bottom == null || topTime == timeSeconds) {
+            return Optional.of((T) top);
+        } else {
+            // 前後のサンプルを線形に補間して返す。
+            return Optional.of(
+                    m_interpolatingFunc.interpolate(
+                            (T) bottom,
+                            (T) top,
+                            (timeSeconds - bottomTime) / (topTime - bottomTime)));
+        }
+    }
+
+    // 最新のサンプルを返す。空ならnull。
+    @SuppressWarnings("unchecked")
+    public Entry<Double, T> getLatest() {
+        while (true) {
+            long seq = m_sequence;
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int size = m_size;
+            int last = size == 0 ? 0 : physical(size - 1);
+            double time = m_times[last];
+            Object sample = m_samples[last];
+            VarHandle.loadLoadFence();
+            if (m_sequence != seq) {
+                continue;
+            }
+            return size == 0 ? null : Map.entry(time, (T) sample);
+        }
+    }
+
+    // 最古のサンプルの時刻。空ならNaN。
+    public double getOldestTimestamp() {
+        while (true) {
+            long seq = m_sequence;
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int size = m_size;
+            double time = m_times[m_head];
+            VarHandle.loadLoadFence();
+            if (m_sequence != seq) {
+                continue;
+            }
+            return size == 0 ? Double.NaN : time;
+        }
+    }
+
+    // 最新のサンプルの時刻。空ならNaN。
+    public double getLatestTimestamp() {
+        while (true) {
+            long seq = m_sequence;
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int size = m_size;
+            double time = m_times[size == 0 ? 0 : physical(size - 1)];
+            VarHandle.loadLoadFence();
+            if (m_sequence != seq) {
+                continue;
+            }
+            return size == 0 ? Double.NaN : time;
+        }
+    }
+
+    private long beginWrite() {
+        long seq = m_sequence;
+        m_sequence = seq + 1;
+
+        // シーケンスを奇数にしてから配列を書き換える
+        VarHandle.storeStoreFence();
+        return seq;
+    }
+
+    private void endWrite(long seq) {
+        m_sequence = seq + 2;
+    }
+
+    // 論理インデックス(0が最古)をリング上の位置に変換
+    private int physical(int logicalIndex) {
+        int index = m_head + logicalIndex;
+        return index >= m_times.length ? index - m_times.length : index;
+    }
+
+    // timeSeconds以上となる最初の論理インデックスを二分探索で求める。
+    private int lowerBound(double timeSeconds, int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (m_times[physical(mid)] < timeSeconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void dropOldest() {
+        m_samples[m_head] = null;
+        m_head = physical(1);
+        m_size--;
+    }
+
+    private void writeSample(double timeSeconds, T sample) {
+        int capacity = m_times.length;
+        if (m_size == 0 || timeSeconds > m_times[physical(m_size - 1)]) {
+            // 通常は時刻順に届くので末尾に追加するだけ
+            if (m_size == capacity) {
+                dropOldest();
+            }
+            int tail = physical(m_size);
+            m_times[tail] = timeSeconds;
+            m_samples[tail] = sample;
+            m_size++;
+            return;
+        }
+
+        // 遅れて届いたサンプルは時刻順の位置に挿入する。
+        int index = lowerBound(timeSeconds, m_size);
+        if (index < m_size && m_times[physical(index)] == timeSeconds) {
+            // 同じ時刻は上書き
+            m_samples[physical(index)] = sample;
+            return;
+        }
+        if (m_size == capacity) {
+            if (index == 0) {
+                // 満杯で最古より古いサンプルは捨てる
+                return;
+            }
+            dropOldest();
+            index--;
+        }
+        for (int i = m_size; i > index; i--) {
+            int to = physical(i);
+            int from = physical(i - 1);
+            m_times[to] = m_times[from];
+            m_samples[to] = m_samples[from];
+        }
+        m_times[physical(index)] = timeSeconds;
+        m_samples[physical(index)] = sample;
+        m_size++;
+    }
+
+    private void removeOlderThan(double oldest) {
+        while (m_size > 0 && m_times[m_head] < oldest) {
+            dropOldest();
+        }
+    }
+}
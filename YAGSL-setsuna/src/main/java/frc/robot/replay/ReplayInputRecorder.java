@@ -0,0 +1,102 @@
+package frc.robot.replay;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.RobotStateSnapshot;
+import frc.robot.subsystems.vision.VisionFieldPoseEstimate;
+
+import java.util.List;
+
+import org.littletonrobotics.junction.Logger;
+
+//
+// リプレイ用の入力をAdvantageKitのログに残すクラス。
+// オドメトリのスレッド(250Hz)が書いた走行の行を溜めておき、メインループで1周期分まとめて
+// 1つのdouble[]として出力する。ビジョン推定はメインループで照合前にそのまま出力する。
+// 並びはReplayInputsを参照。
+//
+
+public class ReplayInputRecorder {
+    // 1周期(20ms)で約5行。ループが遅れたときのために余裕を持たせる
+    private static final int kCapacityRows = 64;
+
+    private final double[] moduleTranslations;
+    private final int moduleCount;
+    private final int driveRowLength;
+
+    // 走行の行のリングバッファ (thisで保護する)
+    private final double[] driveRows;
+    private int head = 0;
+    private int count = 0;
+    private long droppedDriveRows = 0;
+
+    private boolean loggedModuleTranslations = false;
+
+    public ReplayInputRecorder(Translation2d[] moduleLocations) {
+        this.moduleCount = moduleLocations.length;
+        this.driveRowLength = ReplayInputs.driveRowLength(moduleCount);
+        this.driveRows = new double[kCapacityRows * driveRowLength];
+        this.moduleTranslations = new double[2 * moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            moduleTranslations[2 * i] = moduleLocations[i].getX();
+            moduleTranslations[2 * i + 1] = moduleLocations[i].getY();
+        }
+    }
+
+    // オドメトリ1周期分のサンプル (オドメトリのスレッドから呼ぶ)
+    public synchronized void recordDriveSample(
+            RobotStateSnapshot snapshot, double gyroYawRads, SwerveModulePosition[] modulePositions) {
+        ReplayInputs.writeDriveSample(snapshot, gyroYawRads, modulePositions, driveRows, nextRowOffset());
+    }
+
+    // オドメトリのリセット (姿勢推定器をリセットした直後に呼ぶ)
+    public synchronized void recordDriveReset(double timestamp, Pose2d pose) {
+        ReplayInputs.writeDriveReset(timestamp, pose, driveRowLength, driveRows, nextRowOffset());
+    }
+
+    // 書き込む行の位置。満杯なら一番古い行を捨てる。
+    private int nextRowOffset() {
+        if (count == kCapacityRows) {
+            head = (head + 1) % kCapacityRows;
+            count--;
+            droppedDriveRows++;
+        }
+        int row = (head + count) % kCapacityRows;
+        count++;
+        return row * driveRowLength;
+    }
+
+    // 溜まった走行の行を古い順に出力する (メインループから毎周期1回呼ぶ)
+    public void logDriveRows() {
+        if (!loggedModuleTranslations) {
+            Logger.recordOutput(ReplayInputs.kModuleTranslationsKey, moduleTranslations);
+            loggedModuleTranslations = true;
+        }
+        double[] rows;
+        long dropped;
+        synchronized (this) {
+            rows = new double[count * driveRowLength];
+            for (int i = 0; i < count; i++) {
+                int row = (head + i) % kCapacityRows;
+                System.arraycopy(
+                        driveRows, row * driveRowLength, rows, i * driveRowLength, driveRowLength);
+            }
+            head = 0;
+            count = 0;
+            dropped = droppedDriveRows;
+        }
+        Logger.recordOutput(ReplayInputs.kDriveRowsKey, rows);
+        Logger.recordOutput("ReplayInputs/Drive/DroppedRows", dropped);
+    }
+
+    // 照合前のビジョン推定を出力する (メインループから毎周期1回呼ぶ)
+    public void logVisionEstimates(List<VisionFieldPoseEstimate> estimates) {
+        double[] rows = new double[estimates.size() * ReplayInputs.VISION_ROW_LENGTH];
+        for (int i = 0; i < estimates.size(); i++) {
+            ReplayInputs.writeVisionEstimate(
+                    estimates.get(i), rows, i * ReplayInputs.VISION_ROW_LENGTH);
+        }
+        Logger.recordOutput(ReplayInputs.kVisionRowsKey, rows);
+    }
+}
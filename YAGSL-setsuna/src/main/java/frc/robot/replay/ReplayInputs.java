@@ -0,0 +1,180 @@
+package frc.robot.replay;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import frc.robot.RobotStateSnapshot;
+import frc.robot.subsystems.vision.VisionFieldPoseEstimate;
+
+import java.util.Arrays;
+
+//
+// リプレイ(tools/RobotStateReplay)に必要な入力をログに残すときの、キーと配列の並び。
+// ロボット側(ReplayInputRecorder)とリプレイ側の両方がこのクラスで書き込み/読み出しをする。
+//
+// 走行の行 (DRIVE_*): オドメトリ1周期分のサンプル、またはオドメトリのリセット。
+//   サンプルには融合後の姿勢(比較用)に加えて、姿勢推定器をやり直すための
+//   ジャイロのヨーとモジュールの位置(距離, 角度)を入れる。
+// ビジョンの行 (VISION_*): 照合(VisionPoseAligner)に渡す前のビジョン推定1つ分。
+//
+
+public final class ReplayInputs {
+    // AdvantageKitのログのキー (wpilogでは "RealOutputs/" などの接頭辞が付く)
+    public static final String kModuleTranslationsKey = "ReplayInputs/Drive/ModuleTranslations";
+    public static final String kDriveRowsKey = "ReplayInputs/Drive/Rows";
+    public static final String kVisionRowsKey = "ReplayInputs/Vision/Rows";
+
+    // 走行の行の種類
+    public static final double KIND_SAMPLE = 0.0;
+    public static final double KIND_RESET = 1.0;
+
+    // 走行の行の並び (モジュールの位置はDRIVE_MODULES以降に2つずつ)
+    public static final int DRIVE_KIND = 0;
+    public static final int DRIVE_TIMESTAMP = 1;
+    public static final int DRIVE_POSE_X = 2;
+    public static final int DRIVE_POSE_Y = 3;
+    public static final int DRIVE_POSE_THETA = 4;
+    public static final int DRIVE_GYRO_YAW = 5;
+    public static final int DRIVE_YAW_RATE = 6;
+    public static final int DRIVE_ROLL_RATE = 7;
+    public static final int DRIVE_PITCH_RATE = 8;
+    public static final int DRIVE_PITCH = 9;
+    public static final int DRIVE_ROLL = 10;
+    public static final int DRIVE_ACCEL_X = 11;
+    public static final int DRIVE_ACCEL_Y = 12;
+    public static final int DRIVE_MEASURED_ROBOT = 13;
+    public static final int DRIVE_MEASURED_FIELD = 16;
+    public static final int DRIVE_DESIRED_ROBOT = 19;
+    public static final int DRIVE_DESIRED_FIELD = 22;
+    public static final int DRIVE_MODULES = 25;
+
+    // ビジョンの行の並び
+    public static final int VISION_TIMESTAMP = 0;
+    public static final int VISION_POSE_X = 1;
+    public static final int VISION_POSE_Y = 2;
+    public static final int VISION_POSE_THETA = 3;
+    public static final int VISION_TAG_COUNT = 4;
+    public static final int VISION_AVG_TAG_DIST = 5;
+    public static final int VISION_TAG_SPAN = 6;
+    public static final int VISION_AVG_TAG_AREA = 7;
+    public static final int VISION_MAX_AMBIGUITY = 8;
+    public static final int VISION_ROW_LENGTH = 9;
+
+    private ReplayInputs() {}
+
+    public static int driveRowLength(int moduleCount) {
+        return DRIVE_MODULES + 2 * moduleCount;
+    }
+
+    // オドメトリのサンプルを書き込む (融合速度は並進=計測、回転=ヨー角速度で再計算できるので入れない)
+    public static void writeDriveSample(
+            RobotStateSnapshot snapshot,
+            double gyroYawRads,
+            SwerveModulePosition[] modulePositions,
+            double[] out,
+            int offset) {
+        out[offset + DRIVE_KIND] = KIND_SAMPLE;
+        out[offset + DRIVE_TIMESTAMP] = snapshot.getTimestampSeconds();
+        writePose(snapshot.getFieldToRobot(), out, offset + DRIVE_POSE_X);
+        out[offset + DRIVE_GYRO_YAW] = gyroYawRads;
+        out[offset + DRIVE_YAW_RATE] = snapshot.getYawAngularVelocity();
+        out[offset + DRIVE_ROLL_RATE] = snapshot.getRollAngularVelocity();
+        out[offset + DRIVE_PITCH_RATE] = snapshot.getPitchAngularVelocity();
+        out[offset + DRIVE_PITCH] = snapshot.getPitchRads();
+        out[offset + DRIVE_ROLL] = snapshot.getRollRads();
+        out[offset + DRIVE_ACCEL_X] = snapshot.getAccelX();
+        out[offset + DRIVE_ACCEL_Y] = snapshot.getAccelY();
+        writeSpeeds(
+                snapshot.getMeasuredRobotRelativeVx(),
+                snapshot.getMeasuredRobotRelativeVy(),
+                snapshot.getMeasuredRobotRelativeOmega(),
+                out,
+                offset + DRIVE_MEASURED_ROBOT);
+        writeSpeeds(
+                snapshot.getMeasuredFieldRelativeVx(),
+                snapshot.getMeasuredFieldRelativeVy(),
+                snapshot.getMeasuredFieldRelativeOmega(),
+                out,
+                offset + DRIVE_MEASURED_FIELD);
+        writeSpeeds(
+                snapshot.getDesiredRobotRelativeVx(),
+                snapshot.getDesiredRobotRelativeVy(),
+                snapshot.getDesiredRobotRelativeOmega(),
+                out,
+                offset + DRIVE_DESIRED_ROBOT);
+        writeSpeeds(
+                snapshot.getDesiredFieldRelativeVx(),
+                snapshot.getDesiredFieldRelativeVy(),
+                snapshot.getDesiredFieldRelativeOmega(),
+                out,
+                offset + DRIVE_DESIRED_FIELD);
+        for (int i = 0; i < modulePositions.length; i++) {
+            out[offset + DRIVE_MODULES + 2 * i] = modulePositions[i].distanceMeters;
+            out[offset + DRIVE_MODULES + 2 * i + 1] = modulePositions[i].angle.getRadians();
+        }
+    }
+
+    // オドメトリのリセットを書き込む (時刻と姿勢以外は0)
+    public static void writeDriveReset(
+            double timestamp, Pose2d pose, int rowLength, double[] out, int offset) {
+        Arrays.fill(out, offset, offset + rowLength, 0.0);
+        out[offset + DRIVE_KIND] = KIND_RESET;
+        out[offset + DRIVE_TIMESTAMP] = timestamp;
+        writePose(pose, out, offset + DRIVE_POSE_X);
+    }
+
+    public static void writeVisionEstimate(VisionFieldPoseEstimate estimate, double[] out, int offset) {
+        out[offset + VISION_TIMESTAMP] = estimate.getTimestampSeconds();
+        writePose(estimate.getVisionRobotPoseMeters(), out, offset + VISION_POSE_X);
+        out[offset + VISION_TAG_COUNT] = estimate.getNumTags();
+        out[offset + VISION_AVG_TAG_DIST] = estimate.getAvgTagDist();
+        out[offset + VISION_TAG_SPAN] = estimate.getTagSpan();
+        out[offset + VISION_AVG_TAG_AREA] = estimate.getAvgTagArea();
+        out[offset + VISION_MAX_AMBIGUITY] = estimate.getMaxAmbiguity();
+    }
+
+    // ビジョンの行から推定を作り直す (標準偏差は照合で計算し直すのでnull)
+    public static VisionFieldPoseEstimate readVisionEstimate(double[] rows, int offset) {
+        return new VisionFieldPoseEstimate(
+                readPose(rows, offset + VISION_POSE_X),
+                rows[offset + VISION_TIMESTAMP],
+                null,
+                (int) rows[offset + VISION_TAG_COUNT],
+                rows[offset + VISION_AVG_TAG_DIST],
+                rows[offset + VISION_TAG_SPAN],
+                rows[offset + VISION_AVG_TAG_AREA],
+                rows[offset + VISION_MAX_AMBIGUITY]);
+    }
+
+    public static Pose2d readPose(double[] rows, int offset) {
+        return new Pose2d(rows[offset], rows[offset + 1], new Rotation2d(rows[offset + 2]));
+    }
+
+    public static ChassisSpeeds readSpeeds(double[] rows, int offset) {
+        return new ChassisSpeeds(rows[offset], rows[offset + 1], rows[offset + 2]);
+    }
+
+    public static SwerveModulePosition[] readModulePositions(double[] rows, int offset, int moduleCount) {
+        SwerveModulePosition[] positions = new SwerveModulePosition[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            positions[i] =
+                    new SwerveModulePosition(
+                            rows[offset + DRIVE_MODULES + 2 * i],
+                            new Rotation2d(rows[offset + DRIVE_MODULES + 2 * i + 1]));
+        }
+        return positions;
+    }
+
+    private static void writePose(Pose2d pose, double[] out, int offset) {
+        out[offset] = pose.getX();
+        out[offset + 1] = pose.getY();
+        out[offset + 2] = pose.getRotation().getRadians();
+    }
+
+    private static void writeSpeeds(double vx, double vy, double omega, double[] out, int offset) {
+        out[offset] = vx;
+        out[offset + 1] = vy;
+        out[offset + 2] = omega;
+    }
+}
@@ -0,0 +1,383 @@
+package frc.robot.sim;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.lib.limelight.LimelightClient;
+import frc.robot.lib.time.RobotTime;
+import frc.robot.lib.util.SingleWriterTimeInterpolatableBuffer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.littletonrobotics.junction.Logger;
+
+//
+// シミュレーションでLimelightの代わりにNTへ検出結果を公開するクラス。
+// メインループからシミュレーション上の真の姿勢を受け取り、フィールドのAprilTag配置と
+// カメラの視野から見えるタグを計算して、設定したフレームレートで公開する。
+// 公開する値: botpose_orb_wpiblue, rawfiducials, tv, tx, ty, ta, tid, tl, cl, targetpose_robotspace
+//
+// 撮影・公開は別スレッド(Notifier, 1ms周期)で行う。撮影時刻の姿勢は真の姿勢の履歴から補間し、
+// 撮影時刻まで姿勢が届いてからそのフレームを作る。公開は撮影時刻 + 遅れ(ばらつき込み)の後で、
+// botposeの遅れ(6番目)とtlには実際に公開した時刻までの遅れを入れるので、
+// ロボット側の「NT時刻 - 遅れ = 撮影時刻」の計算がそのまま合う。
+//
+// MegaTag2の向きはロボットが送る見出し角ではなく真の向きを使う。
+// あいまいさとタグ面積はおおよその値。
+//
+
+public class SimulatedLimelight implements AutoCloseable {
+    // タグの一辺 (m)
+    private static final double kTagSizeMeters = Units.inchesToMeters(6.5);
+
+    // botposeの先頭の値の数と、タグ1枚あたりの値の数
+    private static final int kBotPoseHeaderLength = 11;
+    private static final int kValuesPerFiducial = 7;
+
+    // 撮影予定がこれ以上遅れていたら(シミュレーションの一時停止など)追いかけずに今から撮り直す
+    private static final double kResyncSeconds = 0.5;
+
+    private final SimulatedLimelightConfig config;
+    private final List<AprilTag> tags;
+    private final Random random;
+
+    private final double framePeriodSeconds;
+    private final double tanHalfHorizontalFov;
+    private final double tanHalfVerticalFov;
+    private final double minTagViewCos;
+
+    // 真の姿勢の履歴 (メインループが書き、撮影スレッドが読む)
+    private final SingleWriterTimeInterpolatableBuffer<Pose2d> truePoses =
+            SingleWriterTimeInterpolatableBuffer.createBuffer(1.0, 128);
+
+    private final DoubleArrayPublisher botPose;
+    private final DoubleArrayPublisher rawFiducials;
+    private final DoubleArrayPublisher targetPoseRobotSpace;
+    private final DoublePublisher tv;
+    private final DoublePublisher tx;
+    private final DoublePublisher ty;
+    private final DoublePublisher ta;
+    private final DoublePublisher tid;
+    private final DoublePublisher tl;
+    private final DoublePublisher cl;
+
+    private final Notifier notifier;
+
+    // 撮影済みで公開待ちのフレーム (撮影スレッドのみが使う)
+    private final ArrayDeque<Frame> pending = new ArrayDeque<>();
+    private double nextCaptureTime = Double.NaN;
+    private double lastPublishTime = Double.NEGATIVE_INFINITY;
+
+    // 公開したフレーム数と、そのうちタグが写っていたフレーム数
+    private final AtomicLong publishedFrames = new AtomicLong();
+    private final AtomicLong framesWithTargets = new AtomicLong();
+
+    // ログのキー (毎周期の文字列連結を避ける)
+    private final String publishedKey;
+    private final String framesWithTargetsKey;
+
+    // 撮影した1フレーム分の値
+    private static final class Frame {
+        double captureTime;
+        double publishTime;
+        double[] botPose;
+        double[] rawFiducials;
+        double[] targetPoseRobotSpace;
+        int tagCount;
+        double tx;
+        double ty;
+        double ta;
+        double tid;
+    }
+
+    // タグ1枚分の検出結果
+    private static final class Detection {
+        AprilTag tag;
+        double txnc;
+        double tync;
+        double ta;
+        double distToCamera;
+        double distToRobot;
+        double ambiguity;
+    }
+
+    public SimulatedLimelight(
+            SimulatedLimelightConfig config, AprilTagFieldLayout fieldLayout, LimelightClient client) {
+        this.config = config;
+        this.tags = fieldLayout.getTags();
+        this.random = new Random(config.getSeed());
+        this.framePeriodSeconds = 1.0 / config.getFramesPerSecond();
+        this.tanHalfHorizontalFov =
+                Math.tan(Units.degreesToRadians(config.getHorizontalFovDegrees() / 2.0));
+        this.tanHalfVerticalFov =
+                Math.tan(Units.degreesToRadians(config.getVerticalFovDegrees() / 2.0));
+        this.minTagViewCos = Math.cos(Units.degreesToRadians(config.getMaxTagViewAngleDegrees()));
+
+        // 90〜120fpsでも読み手のキューに全フレームが届くようにsendAllで公開する
+        NetworkTable table = client.getTable(config.getLimelightName());
+        this.botPose =
+                table.getDoubleArrayTopic("botpose_orb_wpiblue")
+                        .publish(PubSubOption.sendAll(true), PubSubOption.keepDuplicates(true));
+        this.rawFiducials =
+                table.getDoubleArrayTopic("rawfiducials")
+                        .publish(PubSubOption.sendAll(true), PubSubOption.keepDuplicates(true));
+        this.targetPoseRobotSpace =
+                table.getDoubleArrayTopic("targetpose_robotspace")
+                        .publish(PubSubOption.sendAll(true), PubSubOption.keepDuplicates(true));
+        this.tv = table.getDoubleTopic("tv").publish();
+        this.tx = table.getDoubleTopic("tx").publish();
+        this.ty = table.getDoubleTopic("ty").publish();
+        this.ta = table.getDoubleTopic("ta").publish();
+        this.tid = table.getDoubleTopic("tid").publish();
+        this.tl = table.getDoubleTopic("tl").publish();
+        this.cl = table.getDoubleTopic("cl").publish();
+
+        this.publishedKey = "SimLimelight/" + config.getLimelightName() + "/PublishedFrames";
+        this.framesWithTargetsKey =
+                "SimLimelight/" + config.getLimelightName() + "/FramesWithTargets";
+
+        this.notifier = new Notifier(this::poll);
+        this.notifier.setName("SimLimelight-" + config.getLimelightName());
+    }
+
+    public void start() {
+        notifier.startPeriodic(0.001);
+    }
+
+    public String getLimelightName() {
+        return config.getLimelightName();
+    }
+
+    // シミュレーション上の真の姿勢を渡す (メインループから毎周期呼ぶ)
+    public void updateTruePose(double timestampSeconds, Pose2d truePose) {
+        truePoses.addSample(timestampSeconds, truePose);
+    }
+
+    // 公開したフレーム数を出力する (Loggerはメインループからのみ呼べるので撮影スレッドでは出力しない)
+    public void logOutputs() {
+        Logger.recordOutput(publishedKey, publishedFrames.get());
+        Logger.recordOutput(framesWithTargetsKey, framesWithTargets.get());
+    }
+
+    // 撮影スレッドで呼ばれる
+    private void poll() {
+        var latest = truePoses.getLatest();
+        if (latest == null) {
+            return;
+        }
+        double latestPoseTime = latest.getKey();
+        if (Double.isNaN(nextCaptureTime) || nextCaptureTime < latestPoseTime - kResyncSeconds) {
+            nextCaptureTime = latestPoseTime;
+        }
+
+        // 姿勢が届いている撮影時刻の分だけフレームを作る
+        while (nextCaptureTime <= latestPoseTime) {
+            var truePose = truePoses.getSample(nextCaptureTime);
+            if (truePose.isPresent()) {
+                pending.addLast(capture(nextCaptureTime, truePose.get()));
+            }
+            nextCaptureTime += framePeriodSeconds;
+        }
+
+        double now = RobotTime.getTimestampSeconds();
+        while (!pending.isEmpty() && pending.peekFirst().publishTime <= now) {
+            publish(pending.pollFirst());
+        }
+    }
+
+    private Frame capture(double captureTime, Pose2d truePose) {
+        Pose3d robotPose = new Pose3d(truePose);
+        Pose3d cameraPose = robotPose.transformBy(config.getRobotToCamera());
+
+        List<Detection> detections = new ArrayList<>();
+        for (AprilTag tag : tags) {
+            Detection detection = detect(tag, robotPose, cameraPose);
+            if (detection != null) {
+                detections.add(detection);
+            }
+        }
+
+        Frame frame = new Frame();
+        frame.captureTime = captureTime;
+
+        // 遅れ = 撮影遅れ + パイプライン遅れ(ばらつき込み)。公開の順番は撮影順のままにする
+        double latencyMillis =
+                config.getCaptureLatencyMillis()
+                        + Math.max(
+                                0.0,
+                                config.getPipelineLatencyMillis()
+                                        + random.nextGaussian() * config.getLatencyJitterMillis());
+        frame.publishTime = Math.max(captureTime + latencyMillis / 1000.0, lastPublishTime);
+        lastPublishTime = frame.publishTime;
+
+        int tagCount = detections.size();
+        frame.tagCount = tagCount;
+        frame.botPose = new double[kBotPoseHeaderLength + kValuesPerFiducial * tagCount];
+        frame.rawFiducials = new double[kValuesPerFiducial * tagCount];
+        frame.targetPoseRobotSpace = new double[6];
+        if (tagCount == 0) {
+            return frame;
+        }
+
+        double distSum = 0.0;
+        double areaSum = 0.0;
+        Detection primary = detections.get(0);
+        for (int i = 0; i < tagCount; i++) {
+            Detection detection = detections.get(i);
+            distSum += detection.distToCamera;
+            areaSum += detection.ta;
+            if (detection.ta > primary.ta) {
+                primary = detection;
+            }
+            int base = kValuesPerFiducial * i;
+            frame.rawFiducials[base] = detection.tag.ID;
+            frame.rawFiducials[base + 1] = detection.txnc;
+            frame.rawFiducials[base + 2] = detection.tync;
+            frame.rawFiducials[base + 3] = detection.ta;
+            frame.rawFiducials[base + 4] = detection.distToCamera;
+            frame.rawFiducials[base + 5] = detection.distToRobot;
+            frame.rawFiducials[base + 6] = detection.ambiguity;
+        }
+        double avgDist = distSum / tagCount;
+
+        // 位置のノイズは距離^2に比例し、枚数が多いほど小さい。向きはMegaTag2と同じくジャイロ由来とみなす
+        double xyStdDev = config.getXYNoiseStdDevMeters() * avgDist * avgDist / Math.sqrt(tagCount);
+        frame.botPose[0] = truePose.getX() + random.nextGaussian() * xyStdDev;
+        frame.botPose[1] = truePose.getY() + random.nextGaussian() * xyStdDev;
+        frame.botPose[5] = truePose.getRotation().getDegrees();
+        frame.botPose[7] = tagCount;
+        frame.botPose[8] = tagSpan(detections);
+        frame.botPose[9] = avgDist;
+        frame.botPose[10] = areaSum / tagCount;
+        System.arraycopy(
+                frame.rawFiducials, 0, frame.botPose, kBotPoseHeaderLength, frame.rawFiducials.length);
+
+        frame.tx = primary.txnc;
+        frame.ty = primary.tync;
+        frame.ta = primary.ta;
+        frame.tid = primary.tag.ID;
+
+        // FaceAprilTagCommandと同じ並び: [前, 右, 上, roll, pitch, yaw] (m, 度)
+        Pose3d robotToTag = primary.tag.pose.relativeTo(robotPose);
+        frame.targetPoseRobotSpace[0] = robotToTag.getX();
+        frame.targetPoseRobotSpace[1] = -robotToTag.getY();
+        frame.targetPoseRobotSpace[2] = robotToTag.getZ();
+        frame.targetPoseRobotSpace[3] = Units.radiansToDegrees(robotToTag.getRotation().getX());
+        frame.targetPoseRobotSpace[4] = Units.radiansToDegrees(robotToTag.getRotation().getY());
+        frame.targetPoseRobotSpace[5] = Units.radiansToDegrees(robotToTag.getRotation().getZ());
+        return frame;
+    }
+
+    // タグが視野内・距離内でカメラの方を向いていれば検出結果を返す。見えなければnull。
+    private Detection detect(AprilTag tag, Pose3d robotPose, Pose3d cameraPose) {
+        Translation3d cameraToTag = tag.pose.relativeTo(cameraPose).getTranslation();
+        double forward = cameraToTag.getX();
+        if (forward <= 0.0) {
+            return null;
+        }
+        double distToCamera = cameraToTag.getNorm();
+        if (distToCamera > config.getMaxTagDistanceMeters()) {
+            return null;
+        }
+        // カメラ座標の左(+y)・上(+z)を、Limelightのtx(右が正)・ty(上が正)へ
+        double horizontal = -cameraToTag.getY() / forward;
+        double vertical = cameraToTag.getZ() / forward;
+        if (Math.abs(horizontal) > tanHalfHorizontalFov || Math.abs(vertical) > tanHalfVerticalFov) {
+            return null;
+        }
+
+        // タグ面の法線(タグの+x)とタグからカメラへの向きのなす角
+        Translation3d normal = new Translation3d(1.0, 0.0, 0.0).rotateBy(tag.pose.getRotation());
+        Translation3d tagToCamera = cameraPose.getTranslation().minus(tag.pose.getTranslation());
+        double viewCos =
+                (normal.getX() * tagToCamera.getX()
+                                + normal.getY() * tagToCamera.getY()
+                                + normal.getZ() * tagToCamera.getZ())
+                        / distToCamera;
+        if (viewCos < minTagViewCos) {
+            return null;
+        }
+
+        Detection detection = new Detection();
+        detection.tag = tag;
+        detection.txnc =
+                Units.radiansToDegrees(Math.atan(horizontal))
+                        + random.nextGaussian() * config.getAngleNoiseStdDevDegrees();
+        detection.tync =
+                Units.radiansToDegrees(Math.atan(vertical))
+                        + random.nextGaussian() * config.getAngleNoiseStdDevDegrees();
+        // 画像に占める割合(%) = 見かけのタグ面積 / その距離での視野の面積
+        double imageArea = 4.0 * distToCamera * distToCamera * tanHalfHorizontalFov * tanHalfVerticalFov;
+        detection.ta = 100.0 * kTagSizeMeters * kTagSizeMeters * viewCos / imageArea;
+        detection.distToCamera = distToCamera;
+        detection.distToRobot = tag.pose.getTranslation().getDistance(robotPose.getTranslation());
+        // 遠くて小さいタグほどあいまいになる
+        detection.ambiguity = Math.min(1.0, 0.02 * distToCamera / Math.max(detection.ta, 0.05));
+        return detection;
+    }
+
+    // 検出したタグ同士の最大距離 (m)
+    private static double tagSpan(List<Detection> detections) {
+        double span = 0.0;
+        for (int i = 0; i < detections.size(); i++) {
+            for (int j = i + 1; j < detections.size(); j++) {
+                span = Math.max(
+                        span,
+                        detections.get(i).tag.pose.getTranslation()
+                                .getDistance(detections.get(j).tag.pose.getTranslation()));
+            }
+        }
+        return span;
+    }
+
+    private void publish(Frame frame) {
+        // すべての値を同じNT時刻で公開し、遅れには実際に公開した時刻までの時間を入れる
+        long nowMicros = NetworkTablesJNI.now();
+        double latencyMillis = Math.max(0.0, nowMicros / 1000.0 - frame.captureTime * 1000.0);
+        double captureLatencyMillis = Math.min(config.getCaptureLatencyMillis(), latencyMillis);
+        frame.botPose[6] = latencyMillis;
+
+        botPose.set(frame.botPose, nowMicros);
+        rawFiducials.set(frame.rawFiducials, nowMicros);
+        tv.set(frame.tagCount > 0 ? 1.0 : 0.0, nowMicros);
+        tx.set(frame.tx, nowMicros);
+        ty.set(frame.ty, nowMicros);
+        ta.set(frame.ta, nowMicros);
+        tid.set(frame.tagCount > 0 ? frame.tid : -1.0, nowMicros);
+        tl.set(latencyMillis - captureLatencyMillis, nowMicros);
+        cl.set(captureLatencyMillis, nowMicros);
+        if (frame.tagCount > 0) {
+            targetPoseRobotSpace.set(frame.targetPoseRobotSpace, nowMicros);
+            framesWithTargets.incrementAndGet();
+        }
+        publishedFrames.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+        botPose.close();
+        rawFiducials.close();
+        targetPoseRobotSpace.close();
+        tv.close();
+        tx.close();
+        ty.close();
+        ta.close();
+        tid.close();
+        tl.close();
+        cl.close();
+    }
+}
@@ -0,0 +1,183 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Transform3d;
+
+//
+// シミュレーション用Limelight(SimulatedLimelight)1台分の設定。
+// 既定値はLimelight 3(90fps)相当。値を変えるときはwith〜で変えたコピーを作る。
+// 変更できないので複数スレッドで共有してよい。
+//
+
+public final class SimulatedLimelightConfig {
+    // NTのテーブル名 (VisionCameraConfigと同じ名前にする)
+    private final String limelightName;
+
+    // ロボット中心からカメラまでの変換 (WPILib座標: 前x, 左y, 上z)
+    private final Transform3d robotToCamera;
+
+    // 視野角 (度)
+    private final double horizontalFovDegrees;
+    private final double verticalFovDegrees;
+
+    // この距離(m)より遠いタグは検出しない
+    private final double maxTagDistanceMeters;
+
+    // タグ面の法線とカメラ方向のなす角がこの角度(度)より大きいタグは検出しない
+    private final double maxTagViewAngleDegrees;
+
+    // 撮影のフレームレート
+    private final double framesPerSecond;
+
+    // 撮影遅れ(cl)とパイプライン遅れ(tl)の平均 (ms)
+    private final double captureLatencyMillis;
+    private final double pipelineLatencyMillis;
+
+    // パイプライン遅れのばらつきの標準偏差 (ms)
+    private final double latencyJitterMillis;
+
+    // 1タグを1m先で見たときの位置のノイズの標準偏差 (m)。距離^2に比例し、sqrt(枚数)で割る
+    private final double xyNoiseStdDevMeters;
+
+    // tx/tyのノイズの標準偏差 (度)
+    private final double angleNoiseStdDevDegrees;
+
+    // ノイズの乱数の種 (同じ種なら同じノイズ列になる)
+    private final long seed;
+
+    private SimulatedLimelightConfig(
+            String limelightName,
+            Transform3d robotToCamera,
+            double horizontalFovDegrees,
+            double verticalFovDegrees,
+            double maxTagDistanceMeters,
+            double maxTagViewAngleDegrees,
+            double framesPerSecond,
+            double captureLatencyMillis,
+            double pipelineLatencyMillis,
+            double latencyJitterMillis,
+            double xyNoiseStdDevMeters,
+            double angleNoiseStdDevDegrees,
+            long seed) {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("framesPerSecond must be positive: " + framesPerSecond);
+        }
+        this.limelightName = limelightName;
+        this.robotToCamera = robotToCamera;
+        this.horizontalFovDegrees = horizontalFovDegrees;
+        this.verticalFovDegrees = verticalFovDegrees;
+        this.maxTagDistanceMeters = maxTagDistanceMeters;
+        this.maxTagViewAngleDegrees = maxTagViewAngleDegrees;
+        this.framesPerSecond = framesPerSecond;
+        this.captureLatencyMillis = captureLatencyMillis;
+        this.pipelineLatencyMillis = pipelineLatencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.xyNoiseStdDevMeters = xyNoiseStdDevMeters;
+        this.angleNoiseStdDevDegrees = angleNoiseStdDevDegrees;
+        this.seed = seed;
+    }
+
+    public SimulatedLimelightConfig(String limelightName, Transform3d robotToCamera) {
+        this(limelightName, robotToCamera, 62.5, 48.9, 6.0, 70.0, 90.0, 11.0, 20.0, 3.0, 0.01, 0.1,
+                limelightName.hashCode());
+    }
+
+    public SimulatedLimelightConfig withFov(double horizontalDegrees, double verticalDegrees) {
+        return new SimulatedLimelightConfig(
+                limelightName, robotToCamera, horizontalDegrees, verticalDegrees,
+                maxTagDistanceMeters, maxTagViewAngleDegrees, framesPerSecond, captureLatencyMillis,
+                pipelineLatencyMillis, latencyJitterMillis, xyNoiseStdDevMeters,
+                angleNoiseStdDevDegrees, seed);
+    }
+
+    public SimulatedLimelightConfig withMaxTagDistanceMeters(double value) {
+        return new SimulatedLimelightConfig(
+                limelightName, robotToCamera, horizontalFovDegrees, verticalFovDegrees, value,
+                maxTagViewAngleDegrees, framesPerSecond, captureLatencyMillis,
+                pipelineLatencyMillis, latencyJitterMillis, xyNoiseStdDevMeters,
+                angleNoiseStdDevDegrees, seed);
+    }
+
+    public SimulatedLimelightConfig withFramesPerSecond(double value) {
+        return new SimulatedLimelightConfig(
+                limelightName, robotToCamera, horizontalFovDegrees, verticalFovDegrees,
+                maxTagDistanceMeters, maxTagViewAngleDegrees, value, captureLatencyMillis,
+                pipelineLatencyMillis, latencyJitterMillis, xyNoiseStdDevMeters,
+                angleNoiseStdDevDegrees, seed);
+    }
+
+    public SimulatedLimelightConfig withLatency(
+            double captureMillis, double pipelineMillis, double jitterMillis) {
+        return new SimulatedLimelightConfig(
+                limelightName, robotToCamera, horizontalFovDegrees, verticalFovDegrees,
+                maxTagDistanceMeters, maxTagViewAngleDegrees, framesPerSecond, captureMillis,
+                pipelineMillis, jitterMillis, xyNoiseStdDevMeters, angleNoiseStdDevDegrees, seed);
+    }
+
+    public SimulatedLimelightConfig withNoise(double xyStdDevMeters, double angleStdDevDegrees) {
+        return new SimulatedLimelightConfig(
+                limelightName, robotToCamera, horizontalFovDegrees, verticalFovDegrees,
+                maxTagDistanceMeters, maxTagViewAngleDegrees, framesPerSecond, captureLatencyMillis,
+                pipelineLatencyMillis, latencyJitterMillis, xyStdDevMeters, angleStdDevDegrees,
+                seed);
+    }
+
+    public SimulatedLimelightConfig withSeed(long value) {
+        return new SimulatedLimelightConfig(
+                limelightName, robotToCamera, horizontalFovDegrees, verticalFovDegrees,
+                maxTagDistanceMeters, maxTagViewAngleDegrees, framesPerSecond, captureLatencyMillis,
+                pipelineLatencyMillis, latencyJitterMillis, xyNoiseStdDevMeters,
+                angleNoiseStdDevDegrees, value);
+    }
+
+    public String getLimelightName() {
+        return limelightName;
+    }
+
+    public Transform3d getRobotToCamera() {
+        return robotToCamera;
+    }
+
+    public double getHorizontalFovDegrees() {
+        return horizontalFovDegrees;
+    }
+
+    public double getVerticalFovDegrees() {
+        return verticalFovDegrees;
+    }
+
+    public double getMaxTagDistanceMeters() {
+        return maxTagDistanceMeters;
+    }
+
+    public double getMaxTagViewAngleDegrees() {
+        return maxTagViewAngleDegrees;
+    }
+
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public double getCaptureLatencyMillis() {
+        return captureLatencyMillis;
+    }
+
+    public double getPipelineLatencyMillis() {
+        return pipelineLatencyMillis;
+    }
+
+    public double getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    public double getXYNoiseStdDevMeters() {
+        return xyNoiseStdDevMeters;
+    }
+
+    public double getAngleNoiseStdDevDegrees() {
+        return angleNoiseStdDevDegrees;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,131 @@
+package frc.robot.subsystems;
+
+import com.studica.frc.AHRS;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.RobotState;
+import frc.robot.lib.time.RobotTime;
+import frc.robot.replay.ReplayInputRecorder;
+
+import java.util.function.Supplier;
+
+import swervelib.SwerveDrive;
+
+//
+// メインループ(50Hz)とは別に、高い周期でオドメトリを更新するスレッド。
+// YAGSLの姿勢推定器を更新し、その姿勢とnavXの角速度・姿勢・加速度を
+// 時刻付きでRobotStateへ書き込む。RobotStateの姿勢履歴を書き込むのはこのスレッドだけ。
+// リプレイ用に、同じ値とジャイロ・モジュールの位置をReplayInputRecorderへも書き込む。
+// シミュレーションではYAGSL内蔵のオドメトリ更新がmaple-simを実時間で進めるので、
+// 推定器の更新はYAGSLに任せ、このスレッドはRobotStateとリプレイへの書き込みだけを行う。
+//
+
+public class OdometryThread implements AutoCloseable {
+    private static final double kGravity = 9.80665;
+
+    private final SwerveDrive swerveDrive;
+    private final AHRS navx;
+    private final RobotState robotState;
+    private final ReplayInputRecorder replayRecorder;
+
+    // falseならYAGSLの推定器を更新しない (YAGSL内蔵の更新が動いているとき)
+    private final boolean updatesOdometry;
+
+    // 最後に指令したロボット座標系/フィールド座標系の速度
+    private final Supplier<ChassisSpeeds> desiredRobotRelativeSpeeds;
+    private final Supplier<ChassisSpeeds> desiredFieldRelativeSpeeds;
+
+    private final Notifier notifier;
+
+    public OdometryThread(
+            SwerveDrive swerveDrive,
+            AHRS navx,
+            RobotState robotState,
+            ReplayInputRecorder replayRecorder,
+            boolean updatesOdometry,
+            Supplier<ChassisSpeeds> desiredRobotRelativeSpeeds,
+            Supplier<ChassisSpeeds> desiredFieldRelativeSpeeds) {
+        this.swerveDrive = swerveDrive;
+        this.navx = navx;
+        this.robotState = robotState;
+        this.replayRecorder = replayRecorder;
+        this.updatesOdometry = updatesOdometry;
+        this.desiredRobotRelativeSpeeds = desiredRobotRelativeSpeeds;
+        this.desiredFieldRelativeSpeeds = desiredFieldRelativeSpeeds;
+        this.notifier = new Notifier(this::update);
+        this.notifier.setName("Odometry");
+    }
+
+    public void start(double frequencyHz) {
+        notifier.startPeriodic(1.0 / frequencyHz);
+    }
+
+    // オドメトリスレッドで呼ばれる
+    private void update() {
+        // 推定器の更新と、リプレイに残すジャイロ・モジュール位置の読み取りを同じロックの中で行う。
+        // YAGSLはupdateOdometryで読み直したセンサ値をキャッシュするので、直後に1回だけ読めば
+        // 推定器が使ったのと同じ値になる。(ロック中はビジョンの融合やリセットも割り込まない)
+        double timestamp;
+        Pose2d pose;
+        Rotation2d yaw;
+        SwerveModulePosition[] modulePositions;
+        swerveDrive.odometryLock.lock();
+        try {
+            if (updatesOdometry) {
+                swerveDrive.updateOdometry();
+            }
+            timestamp = RobotTime.getTimestampSeconds();
+            pose = swerveDrive.getPose();
+            yaw = swerveDrive.getYaw();
+            modulePositions = swerveDrive.getModulePositions();
+        } finally {
+            swerveDrive.odometryLock.unlock();
+        }
+
+        robotState.addOdometryMeasurement(timestamp, pose);
+
+        // navXはヨーが時計回り正なので、WPILibの反時計回り正に合わせて符号を反転する
+        double yawRateRadPerS = -Units.degreesToRadians(navx.getRate());
+        double rollRateRadPerS = Units.degreesToRadians(navx.getRawGyroX());
+        double pitchRateRadPerS = Units.degreesToRadians(navx.getRawGyroY());
+
+        ChassisSpeeds measuredRobotRelative = swerveDrive.getRobotVelocity();
+        ChassisSpeeds measuredFieldRelative = swerveDrive.getFieldVelocity();
+
+        // 並進はオドメトリ、回転はジャイロの値を使った融合速度
+        ChassisSpeeds fusedFieldRelative =
+                new ChassisSpeeds(
+                        measuredFieldRelative.vxMetersPerSecond,
+                        measuredFieldRelative.vyMetersPerSecond,
+                        yawRateRadPerS);
+
+        robotState.addDriveMotionMeasurements(
+                timestamp,
+                rollRateRadPerS,
+                pitchRateRadPerS,
+                yawRateRadPerS,
+                Units.degreesToRadians(navx.getPitch()),
+                Units.degreesToRadians(navx.getRoll()),
+                navx.getWorldLinearAccelX() * kGravity,
+                navx.getWorldLinearAccelY() * kGravity,
+                desiredRobotRelativeSpeeds.get(),
+                desiredFieldRelativeSpeeds.get(),
+                measuredRobotRelative,
+                measuredFieldRelative,
+                fusedFieldRelative);
+
+        // このスレッドが直前に公開したスナップショットと同じ周期の値を記録する
+        replayRecorder.recordDriveSample(
+                robotState.getLatestSnapshot(), yaw.getRadians(), modulePositions);
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+    }
+}
@@ -14,8 +14,14 @@ import com.pathplanner.lib.controllers.PPHolonomicDriveController;
 
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.lib.limelight.LimelightHelpers;
+import frc.robot.lib.time.LoopProfiler;
+import frc.robot.RobotState;
 import frc.robot.lib.util.Constants;
+import frc.robot.lib.time.RobotTime;
+import frc.robot.lib.util.Constants.DriveConstants;
+import frc.robot.replay.ReplayInputRecorder;
+import frc.robot.subsystems.telemetry.TelemetryProfile;
+import frc.robot.subsystems.vision.VisionFieldPoseEstimate;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
@@ -24,15 +30,16 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 
 import java.io.File;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import com.studica.frc.AHRS;
 
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import swervelib.parser.SwerveParser;
 import swervelib.telemetry.SwerveDriveTelemetry;
-import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
 import swervelib.SwerveDrive;
 // import swervelib.SwerveInputStream;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -46,15 +53,27 @@ public class SwerveSubsystem extends SubsystemBase {
   File directory = new File(Filesystem.getDeployDirectory(),"swerve");
   SwerveDrive  swerveDrive;
 
-  public SwerveSubsystem() {
-    // YAGSLのテレメトリを詳細表示モードにする（デバッグ用の情報を多く出す設定）
-    /*＝＝＝＝＝＝＝＝＝＝＝まじ大事＝＝＝＝＝＝＝＝＝＝
-    *この下にある SwerveDriveTelemetry.verbosity = TelemetryVerbosity.HIGH;
-    *は大会になったら絶対に消すことまじで大事
-    *めっちゃデータを送るから消さないとロボットが遅くなる。
-    *消す時は SwerveDriveTelemetry.verbosity = TelemetryVerbosity.NONE;　にする
-    */
-    SwerveDriveTelemetry.verbosity = TelemetryVerbosity.HIGH;
+  // periodicの処理時間の計測区間
+  private final LoopProfiler profiler = LoopProfiler.getInstance();
+  private final int periodicSection = profiler.registerSection("SwerveSubsystem/periodic");
+
+  // リプレイ用の入力の記録 (tools/RobotStateReplayで使う)
+  private ReplayInputRecorder replayRecorder;
+
+  // オドメトリ専用スレッド (RobotStateができてからstartOdometryThreadで開始する)
+  private OdometryThread odometryThread;
+
+  // 最後に指令した速度 (オドメトリスレッドがRobotStateへ書き込む)
+  private final AtomicReference<ChassisSpeeds> desiredRobotRelativeSpeeds =
+      new AtomicReference<>(new ChassisSpeeds());
+  private final AtomicReference<ChassisSpeeds> desiredFieldRelativeSpeeds =
+      new AtomicReference<>(new ChassisSpeeds());
+
+  public SwerveSubsystem(TelemetryProfile telemetryProfile) {
+    // YAGSLのテレメトリの詳細度はプロファイルで決める (生成前に設定する必要がある)
+    // 試合中は必ずMATCH(NONE)になるので、ここを手で書き換える必要は無い。
+    // モジュールの詳細はTelemetrySubsystemが予算内で少しずつ出す。
+    SwerveDriveTelemetry.verbosity = telemetryProfile.getSwerveVerbosity();
 
     try
     {
@@ -68,9 +87,47 @@ public class SwerveSubsystem extends SubsystemBase {
     {
       throw new RuntimeException(e);
     }
+    // 実機ではYAGSL内蔵のオドメトリ更新(50Hz)は止めて、OdometryThreadで更新する。
+    // シミュレーションでは内蔵の更新がmaple-simを進めるので残す。
+    // (OdometryThreadからも更新すると、maple-simが実時間より速く進んでしまう)
+    if (!RobotBase.isSimulation()) {
+      swerveDrive.stopOdometryThread();
+    }
+    replayRecorder = new ReplayInputRecorder(swerveDrive.kinematics.getModules());
     setupPathPlanner();
   }
 
+  // オドメトリスレッドを開始する。以降RobotStateの姿勢履歴はこのスレッドが書き込む。
+  public void startOdometryThread(RobotState robotState) {
+    if (odometryThread != null) {
+      return;
+    }
+    odometryThread =
+        new OdometryThread(
+            swerveDrive,
+            navx,
+            robotState,
+            replayRecorder,
+            !RobotBase.isSimulation(),
+            desiredRobotRelativeSpeeds::get,
+            desiredFieldRelativeSpeeds::get);
+    odometryThread.start(DriveConstants.odometryFrequencyHz);
+  }
+
+  // ロボット座標系で指令した速度を記録
+  private void recordDesiredRobotRelativeSpeeds(ChassisSpeeds speeds) {
+    desiredRobotRelativeSpeeds.set(speeds);
+    desiredFieldRelativeSpeeds.set(
+        ChassisSpeeds.fromRobotRelativeSpeeds(speeds, swerveDrive.getOdometryHeading()));
+  }
+
+  // フィールド座標系で指令した速度を記録
+  private void recordDesiredFieldRelativeSpeeds(ChassisSpeeds speeds) {
+    desiredFieldRelativeSpeeds.set(speeds);
+    desiredRobotRelativeSpeeds.set(
+        ChassisSpeeds.fromFieldRelativeSpeeds(speeds, swerveDrive.getOdometryHeading()));
+  }
+
   public void setupPathPlanner()
   {
     // GUI設定からRobotConfigを読み込みます。
@@ -85,11 +142,12 @@ public class SwerveSubsystem extends SubsystemBase {
       AutoBuilder.configure(
           swerveDrive::getPose,
           // ロボットポーズ提供元
-          swerveDrive::resetOdometry,
+          this::resetOdometry,
           // 走行距離計のリセット方法（車両に開始姿勢がある場合に呼び出されます）
           swerveDrive::getRobotVelocity,
           // シャーシ速度の供給元。ロボット相対でなければならない
           (speedsRobotRelative, moduleFeedForwards) -> {
+            recordDesiredRobotRelativeSpeeds(speedsRobotRelative);
             if (enableFeedforward)
             {
               swerveDrive.drive(
@@ -174,19 +232,31 @@ public class SwerveSubsystem extends SubsystemBase {
   @Override
   public void periodic() {
     // This method will be called once per scheduler run
-        // 1) まずはオドメトリ更新（毎周期必須）
-    // poseEstimator.update(navx.getRotation2d(), getModulePositions());
-
-    // 2) MegaTag2用にYawをLimelightへ毎周期送る
-    double yawDeg = navx.getRotation2d().getDegrees();
-    LimelightHelpers.SetRobotOrientation("limelight", yawDeg, 0, 0, 0, 0, 0);
-
-    // 3) MegaTag2取得 → 有効なら融合
-    var mt2 = LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2("limelight"); // SetRobotOrientation後に呼ぶ  [oai_citation:5‡Limelight Vision](https://limelightlib-wpijava-reference.limelightvision.io/frc/robot/LimelightHelpers.html?utm_source=chatgpt.com)
-    if (mt2 != null && mt2.tagCount > 0) {
-      if (mt2.tagCount > 0) {
-        swerveDrive.addVisionMeasurement(mt2.pose, mt2.timestampSeconds);
-      }
+    profiler.begin(periodicSection);
+
+    // 1) オドメトリ更新は実機ではOdometryThread、シミュレーションではYAGSL内蔵の更新が行うので、ここでは何もしない
+
+    // 2) MegaTag2用のYawはLimelightOutputCoordinatorがループの最初にまとめて送る
+
+    // 3) MegaTag2の融合はVisionSubsystem → RobotState.updateMegatagEstimateに一本化した
+
+    // 4) オドメトリのスレッドが溜めたリプレイ用の入力をまとめてログへ出す
+    replayRecorder.logDriveRows();
+
+    profiler.end(periodicSection);
+  }
+
+  // RobotStateが採用したビジョン推定を姿勢推定器へ融合する
+  public void addVisionMeasurement(VisionFieldPoseEstimate estimate) {
+    if (estimate.getVisionMeasurementsStdDevs() != null) {
+      swerveDrive.addVisionMeasurement(
+          estimate.getVisionRobotPoseMeters(),
+          estimate.getTimestampSeconds(),
+          estimate.getVisionMeasurementsStdDevs());
+    } else {
+      // 標準偏差が無いときはYAGSLの既定値を使う
+      swerveDrive.addVisionMeasurement(
+          estimate.getVisionRobotPoseMeters(), estimate.getTimestampSeconds());
     }
   }
 
@@ -195,25 +265,42 @@ public class SwerveSubsystem extends SubsystemBase {
     // This method will be called once per scheduler run during simulation
   }
 
+  // シミュレーション上の真の姿勢 (ビジョンを融合したオドメトリではなく、シミュレータの車体の姿勢)
+  public Pose2d getSimulatedTruePose() {
+    return swerveDrive.getSimulationDriveTrainPose().orElseGet(swerveDrive::getPose);
+  }
+
   public SwerveDrive getSwerveDrive() {
     return swerveDrive;
   }
 
+  public ReplayInputRecorder getReplayRecorder() {
+    return replayRecorder;
+  }
+
+  // オドメトリをリセットする (リプレイで姿勢推定器を同じようにリセットできるよう記録する)
+  public void resetOdometry(Pose2d pose) {
+    swerveDrive.resetOdometry(pose);
+    replayRecorder.recordDriveReset(RobotTime.getTimestampSeconds(), pose);
+  }
+
   public void driveFieldOriented(ChassisSpeeds velocity) {
+    recordDesiredFieldRelativeSpeeds(velocity);
     swerveDrive.driveFieldOriented(velocity);
   }
   public Command driveFieldOriented(Supplier<ChassisSpeeds> velocity) {
     return run(() -> {
-      swerveDrive.driveFieldOriented(velocity.get());
+      driveFieldOriented(velocity.get());
     });
   }
   private SwerveModulePosition[] getModulePositions() {
-    // 各モジュールのdrive距離と角度を返す（あなたの実装）
-    return new SwerveModulePosition[] { /* FL, FR, BL, BR */ };
+    // 各モジュールのdrive距離と角度を返す (FL, FR, BL, BR)
+    return swerveDrive.getModulePositions();
   }
 
   // SwerveSubsystem に追加
   public void setChassisSpeeds(ChassisSpeeds speeds) {
+    recordDesiredRobotRelativeSpeeds(speeds);
     swerveDrive.setChassisSpeeds(speeds);
   }
 }
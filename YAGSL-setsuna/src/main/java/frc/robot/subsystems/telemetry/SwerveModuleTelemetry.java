@@ -0,0 +1,52 @@
+package frc.robot.subsystems.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+
+import swervelib.SwerveModule;
+
+//
+// スワーブモジュール1つ分の詳細テレメトリ。TelemetrySchedulerから順番に出力される。
+//
+
+public class SwerveModuleTelemetry implements TelemetryScheduler.Source {
+    // NTの値1つあたりのおおよそのバイト数 (値8バイト + ヘッダ)
+    private static final int kBytesPerValue = 16;
+    private static final int kValueCount = 6;
+
+    private final SwerveModule module;
+
+    private final DoublePublisher speedPublisher;
+    private final DoublePublisher anglePublisher;
+    private final DoublePublisher absoluteEncoderPublisher;
+    private final DoublePublisher distancePublisher;
+    private final DoublePublisher driveOutputPublisher;
+    private final DoublePublisher angleOutputPublisher;
+
+    public SwerveModuleTelemetry(SwerveModule module, NetworkTable parent) {
+        this.module = module;
+        NetworkTable table = parent.getSubTable(module.getConfiguration().name);
+        speedPublisher = table.getDoubleTopic("MeasuredSpeedMps").publish();
+        anglePublisher = table.getDoubleTopic("MeasuredAngleDeg").publish();
+        absoluteEncoderPublisher = table.getDoubleTopic("AbsoluteEncoderDeg").publish();
+        distancePublisher = table.getDoubleTopic("DistanceMeters").publish();
+        driveOutputPublisher = table.getDoubleTopic("DriveAppliedOutput").publish();
+        angleOutputPublisher = table.getDoubleTopic("AngleAppliedOutput").publish();
+    }
+
+    @Override
+    public int estimatedBytes() {
+        return kValueCount * kBytesPerValue;
+    }
+
+    @Override
+    public void publish() {
+        var state = module.getState();
+        speedPublisher.set(state.speedMetersPerSecond);
+        anglePublisher.set(state.angle.getDegrees());
+        absoluteEncoderPublisher.set(module.getAbsolutePosition());
+        distancePublisher.set(module.getPosition().distanceMeters);
+        driveOutputPublisher.set(module.getDriveMotor().getAppliedOutput());
+        angleOutputPublisher.set(module.getAngleMotor().getAppliedOutput());
+    }
+}
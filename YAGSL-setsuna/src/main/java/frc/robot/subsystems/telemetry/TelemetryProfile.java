@@ -0,0 +1,105 @@
+package frc.robot.subsystems.telemetry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
+
+//
+// テレメトリの出力量のプロファイル。
+//   MATCH : 試合用。YAGSLのテレメトリもモジュールの詳細も出さない。
+//   PIT   : ピット用。モジュールの詳細を4周期で1巡する速さで出す。(4モジュールなら1周期に1つ)
+//   DEBUG : 練習・調整用。モジュールの詳細を2周期で1巡する速さで出す。(4モジュールなら1周期に2つ)
+// YAGSLのHIGHは全モジュールの情報をオドメトリの更新ごとにまとめて出すので、どのプロファイルでも使わない。
+// モジュールの詳細はTelemetrySchedulerが1周期あたりの予算内で順番に出す。
+// 予算は登録された出力元の合計バイト数を1巡の周期数で割って決めるので、
+// 出力元の数や大きさが変わっても、全部を一度に出すことはない。
+//
+// プロファイルはdeployディレクトリのtelemetry.jsonで選ぶ ({"profile": "match"} など)。
+// リポジトリのtelemetry.jsonはMATCHのままにしておき、練習や調整でDEBUG/PITにしたいときは
+// 同じ形式のtelemetry.local.json(gitの管理外)を置く。あればtelemetry.jsonより優先する。
+// FMSに接続しているとき(試合中)は、ファイルの内容に関係なく必ずMATCHになる。
+//
+
+public enum TelemetryProfile {
+    MATCH(TelemetryVerbosity.NONE, 0, 0),
+    PIT(TelemetryVerbosity.LOW, 4, 200),
+    DEBUG(TelemetryVerbosity.LOW, 2, 500);
+
+    // プロファイルを書いたファイル (deployディレクトリからの相対パス)
+    public static final String kDeployFileName = "telemetry.json";
+
+    // 手元だけで使う上書き用のファイル (gitの管理外)
+    public static final String kLocalOverrideFileName = "telemetry.local.json";
+
+    // YAGSLのテレメトリの詳細度
+    private final TelemetryVerbosity swerveVerbosity;
+
+    // 全出力元を1巡するのに使う周期数 (0なら出さない)
+    private final int loopsPerSweep;
+
+    // 1周期に使ってよい時間 (マイクロ秒)
+    private final long timeBudgetMicros;
+
+    TelemetryProfile(TelemetryVerbosity swerveVerbosity, int loopsPerSweep, long timeBudgetMicros) {
+        this.swerveVerbosity = swerveVerbosity;
+        this.loopsPerSweep = loopsPerSweep;
+        this.timeBudgetMicros = timeBudgetMicros;
+    }
+
+    public TelemetryVerbosity getSwerveVerbosity() {
+        return swerveVerbosity;
+    }
+
+    public int getLoopsPerSweep() {
+        return loopsPerSweep;
+    }
+
+    // 出力元の合計バイト数から、1周期に出してよいバイト数(目安)を求める
+    public int getBytesPerLoop(int totalSourceBytes) {
+        if (loopsPerSweep <= 0) {
+            return 0;
+        }
+        return (totalSourceBytes + loopsPerSweep - 1) / loopsPerSweep;
+    }
+
+    public long getTimeBudgetMicros() {
+        return timeBudgetMicros;
+    }
+
+    // 試合中か (FMSに接続しているか、試合の種類が設定されている)
+    public static boolean isMatch() {
+        return DriverStation.isFMSAttached()
+                || DriverStation.getMatchType() != DriverStation.MatchType.None;
+    }
+
+    // deployディレクトリのファイルからプロファイルを読む。
+    // 試合中はMATCH、ファイルが無い・読めないときもMATCHにする。(重い設定で試合に出ないように)
+    public static TelemetryProfile load() {
+        if (isMatch()) {
+            return MATCH;
+        }
+        File file = new File(Filesystem.getDeployDirectory(), kLocalOverrideFileName);
+        if (!file.exists()) {
+            file = new File(Filesystem.getDeployDirectory(), kDeployFileName);
+        }
+        if (!file.exists()) {
+            return MATCH;
+        }
+        try {
+            JsonNode root = new ObjectMapper().readTree(file);
+            return valueOf(root.path("profile").asText("match").toUpperCase(Locale.ROOT));
+        } catch (IOException | IllegalArgumentException e) {
+            DriverStation.reportWarning(
+                    "Invalid " + file.getName() + ", using MATCH telemetry: " + e.getMessage(), false);
+            return MATCH;
+        }
+    }
+}
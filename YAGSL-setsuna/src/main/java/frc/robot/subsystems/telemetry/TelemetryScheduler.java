@@ -0,0 +1,69 @@
+package frc.robot.subsystems.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//
+// 量の多いテレメトリを、1周期あたりのバイト数と時間の予算内で少しずつ出すスケジューラ。
+// 登録された出力元を順番(ラウンドロビン)に出し、予算を使い切ったら次の周期に続きから出す。
+// 予算が残っていなくても、1周期に少なくとも1つは出す。(予算が0なら何も出さない)
+// メインループのスレッドからのみ呼ぶこと。
+//
+
+public class TelemetryScheduler {
+    // 出力元
+    public interface Source {
+        // 1回の出力のおおよそのバイト数
+        int estimatedBytes();
+
+        void publish();
+    }
+
+    private final List<Source> sources = new ArrayList<>();
+    private int cursor = 0;
+
+    // 直近の周期に出したバイト数 (目安)
+    private int lastPublishedBytes = 0;
+
+    public void addSource(Source source) {
+        sources.add(source);
+    }
+
+    // 予算内で出力する。戻り値は出した出力元の数。
+    public int run(int byteBudget, long timeBudgetNanos) {
+        lastPublishedBytes = 0;
+        int count = sources.size();
+        if (count == 0 || byteBudget <= 0) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        int published = 0;
+        while (published < count) {
+            Source source = sources.get(cursor);
+            int bytes = source.estimatedBytes();
+            if (published > 0
+                    && (lastPublishedBytes + bytes > byteBudget
+                            || System.nanoTime() - start > timeBudgetNanos)) {
+                break;
+            }
+            source.publish();
+            lastPublishedBytes += bytes;
+            published++;
+            cursor = (cursor + 1) % count;
+        }
+        return published;
+    }
+
+    // 全出力元を1回ずつ出したときのバイト数 (目安)
+    public int getTotalEstimatedBytes() {
+        int total = 0;
+        for (Source source : sources) {
+            total += source.estimatedBytes();
+        }
+        return total;
+    }
+
+    public int getLastPublishedBytes() {
+        return lastPublishedBytes;
+    }
+}
@@ -0,0 +1,63 @@
+package frc.robot.subsystems.telemetry;
+
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.lib.time.LoopProfiler;
+
+import swervelib.SwerveDrive;
+import swervelib.SwerveModule;
+import swervelib.telemetry.SwerveDriveTelemetry;
+
+// テレメトリのプロファイルを管理して、量の多いテレメトリを予算内で少しずつ出すサブシステム。
+// 起動後にFMSへ接続されたら(試合が始まったら)、その場でMATCHへ切り替える。
+public class TelemetrySubsystem extends SubsystemBase {
+  private final TelemetryScheduler scheduler = new TelemetryScheduler();
+  private TelemetryProfile profile;
+
+  private final StringPublisher profilePublisher;
+  private final IntegerPublisher publishedBytesPublisher;
+
+  // periodicの処理時間の計測区間
+  private final LoopProfiler profiler = LoopProfiler.getInstance();
+  private final int periodicSection = profiler.registerSection("TelemetrySubsystem/periodic");
+
+  public TelemetrySubsystem(SwerveDrive swerveDrive, TelemetryProfile profile) {
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Telemetry");
+    profilePublisher = table.getStringTopic("Profile").publish();
+    publishedBytesPublisher = table.getIntegerTopic("PublishedBytesPerLoop").publish();
+
+    NetworkTable swerveTable = table.getSubTable("Swerve");
+    for (SwerveModule module : swerveDrive.getModules()) {
+      scheduler.addSource(new SwerveModuleTelemetry(module, swerveTable));
+    }
+    applyProfile(profile);
+  }
+
+  public TelemetryProfile getProfile() {
+    return profile;
+  }
+
+  private void applyProfile(TelemetryProfile profile) {
+    this.profile = profile;
+    SwerveDriveTelemetry.verbosity = profile.getSwerveVerbosity();
+    profilePublisher.set(profile.name());
+  }
+
+  @Override
+  public void periodic() {
+    profiler.begin(periodicSection);
+
+    if (profile != TelemetryProfile.MATCH && TelemetryProfile.isMatch()) {
+      applyProfile(TelemetryProfile.MATCH);
+    }
+    scheduler.run(
+        profile.getBytesPerLoop(scheduler.getTotalEstimatedBytes()),
+        profile.getTimeBudgetMicros() * 1000L);
+    publishedBytesPublisher.set(scheduler.getLastPublishedBytes());
+
+    profiler.end(periodicSection);
+  }
+}
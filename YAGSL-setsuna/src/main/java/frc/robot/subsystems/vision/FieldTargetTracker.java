@@ -0,0 +1,95 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+import java.util.Optional;
+
+//
+// タグの観測をフィールド座標の目標位置として保持するトラッカー。
+// 観測は撮影時刻のロボット姿勢でフィールド座標に直してから平滑化する。
+// 観測が途切れても、最後の観測からcoastSecondsの間は目標を保持するので、
+// 利用側はその間オドメトリだけで追従を続けられる。
+// 信頼度は最後の観測が届いてからの経過時間で指数的に下がる (届いた直後が1)。
+// 撮影からの遅れは含めないので、フレームが届き続けている間は1に近いままになる。
+// メインループのスレッドからのみ呼ぶこと。
+//
+
+public class FieldTargetTracker {
+    // 観測が途切れても目標を保持する時間 (s)
+    private final double coastSeconds;
+
+    // 信頼度が1/eになる時間 (s)
+    private final double confidenceTimeConstantSeconds;
+
+    // 新しい観測への追従の割合 (0~1、1なら平滑化しない)
+    private final double filterGain;
+
+    // 前の目標からこれ以上離れた観測は別の目標とみなして置き換える (m)
+    private final double resetDistanceMeters;
+
+    private Translation2d fieldToTarget = null;
+    private double lastObservationTimestamp = Double.NEGATIVE_INFINITY;
+    private double lastReceiveTimestamp = Double.NEGATIVE_INFINITY;
+
+    public FieldTargetTracker(
+            double coastSeconds,
+            double confidenceTimeConstantSeconds,
+            double filterGain,
+            double resetDistanceMeters) {
+        this.coastSeconds = coastSeconds;
+        this.confidenceTimeConstantSeconds = confidenceTimeConstantSeconds;
+        this.filterGain = filterGain;
+        this.resetDistanceMeters = resetDistanceMeters;
+    }
+
+    // 撮影時刻のロボット姿勢と、その時のロボット座標から見た目標の位置で観測を追加する
+    // receiveTimestampは観測が届いた時刻 (信頼度の計算に使う)
+    public void addObservation(
+            double captureTimestamp,
+            double receiveTimestamp,
+            Pose2d fieldToRobotAtCapture,
+            Translation2d robotToTarget) {
+        Translation2d observed =
+                fieldToRobotAtCapture.getTranslation()
+                        .plus(robotToTarget.rotateBy(fieldToRobotAtCapture.getRotation()));
+        if (fieldToTarget == null
+                || !isTracking(captureTimestamp)
+                || observed.getDistance(fieldToTarget) > resetDistanceMeters) {
+            fieldToTarget = observed;
+        } else {
+            fieldToTarget = fieldToTarget.interpolate(observed, filterGain);
+        }
+        lastObservationTimestamp = Math.max(lastObservationTimestamp, captureTimestamp);
+        lastReceiveTimestamp = Math.max(lastReceiveTimestamp, receiveTimestamp);
+    }
+
+    // 最後の観測からcoastSeconds以内か
+    public boolean isTracking(double timestamp) {
+        return fieldToTarget != null && timestamp - lastObservationTimestamp <= coastSeconds;
+    }
+
+    // 追従中なら目標のフィールド座標、そうでなければempty
+    public Optional<Translation2d> getFieldToTarget(double timestamp) {
+        return isTracking(timestamp) ? Optional.of(fieldToTarget) : Optional.empty();
+    }
+
+    // 信頼度 (0~1)。追従していなければ0。
+    public double getConfidence(double timestamp) {
+        if (!isTracking(timestamp)) {
+            return 0.0;
+        }
+        double age = Math.max(0.0, timestamp - lastReceiveTimestamp);
+        return Math.exp(-age / confidenceTimeConstantSeconds);
+    }
+
+    public double getLastObservationTimestamp() {
+        return lastObservationTimestamp;
+    }
+
+    public void reset() {
+        fieldToTarget = null;
+        lastObservationTimestamp = Double.NEGATIVE_INFINITY;
+        lastReceiveTimestamp = Double.NEGATIVE_INFINITY;
+    }
+}
@@ -0,0 +1,86 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import frc.robot.lib.limelight.LimelightClient;
+import frc.robot.lib.limelight.LimelightHelpers;
+import frc.robot.lib.limelight.LimelightHelpers.PoseEstimate;
+
+//
+// Limelightが公開したMegaTag2推定(botpose_orb_wpiblue)を取りこぼさず受け取るクラス。
+// 毎周期最新値を読むのではなく、NTのキューに溜まったフレームを1回ずつ取り出す。
+// 取り出したフレームは事前確保したPoseEstimateへ上書きで展開するので、
+// 次のdrain()までの間だけ有効。
+//
+
+public class LimelightIngestion {
+    // 1周期(20ms)の間に届くフレーム数(90fpsなら2フレーム弱)より十分大きいキュー長
+    public static final int QUEUE_DEPTH = 32;
+
+    // 1フレームで展開するタグの最大数
+    public static final int MAX_TAG_COUNT = 16;
+
+    private final String limelightName;
+    private final DoubleArraySubscriber botPoseSubscriber;
+
+    // 展開先のPoseEstimate (使い回す)
+    private final PoseEstimate[] estimates = new PoseEstimate[QUEUE_DEPTH];
+    private int estimateCount = 0;
+
+    public LimelightIngestion(LimelightClient client, String limelightName) {
+        this.limelightName = limelightName;
+
+        // keepDuplicatesで同じ値のフレームも捨てずに、pollStorage分だけ未読フレームを保持する
+        this.botPoseSubscriber =
+                client.getTable(limelightName)
+                        .getDoubleArrayTopic("botpose_orb_wpiblue")
+                        .subscribe(
+                                new double[0],
+                                PubSubOption.keepDuplicates(true),
+                                PubSubOption.pollStorage(QUEUE_DEPTH));
+
+        for (int i = 0; i < QUEUE_DEPTH; i++) {
+            estimates[i] = new PoseEstimate(MAX_TAG_COUNT);
+        }
+    }
+
+    public LimelightIngestion(String limelightName) {
+        this(LimelightClient.getDefault(), limelightName);
+    }
+
+    public String getLimelightName() {
+        return limelightName;
+    }
+
+    // 前回呼び出し以降に届いたフレームを古い順に展開する。戻り値は展開したフレーム数。
+    public int drain() {
+        TimestampedDoubleArray[] frames = botPoseSubscriber.readQueue();
+        estimateCount = 0;
+        for (TimestampedDoubleArray frame : frames) {
+            if (estimateCount == estimates.length) {
+                break;
+            }
+            // timestampはサーバー時刻をロボット側の時刻に換算した値(マイクロ秒)
+            if (LimelightHelpers.decodePoseEstimate(
+                    frame.value, frame.timestamp, true, estimates[estimateCount])) {
+                estimateCount++;
+            }
+        }
+        return estimateCount;
+    }
+
+    // drain()で展開したフレーム数
+    public int getEstimateCount() {
+        return estimateCount;
+    }
+
+    // drain()で展開したi番目(古い順)のフレーム。次のdrain()で上書きされる。
+    public PoseEstimate getEstimate(int index) {
+        return estimates[index];
+    }
+
+    public void close() {
+        botPoseSubscriber.close();
+    }
+}
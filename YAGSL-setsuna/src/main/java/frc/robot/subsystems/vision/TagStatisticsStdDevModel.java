@@ -0,0 +1,122 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+//
+// タグの統計(枚数・平均距離・間隔・面積・あいまいさ)からXYの標準偏差を線形モデルで求める。
+//   σxy = c · [1, 距離^2, あいまいさ, 1/枚数, 間隔, 面積]
+// を最小値で制限し、角速度と(1タグのときだけ)オドメトリとのずれの分だけ大きくする。
+// 係数cはtools/VisionStdDevCalibrationでログから求めて、Constantsに書き写す。
+// 定数はVisionGateConfigから受け取る。
+//
+
+public class TagStatisticsStdDevModel implements VisionStdDevModel {
+    // 特徴量の数 (係数の数)
+    public static final int FEATURE_COUNT = 6;
+
+    // 較正用にログへ出す1フレーム分の行の並び
+    public static final int ROW_TIMESTAMP = 0;
+    public static final int ROW_VISION_X = 1;
+    public static final int ROW_VISION_Y = 2;
+    public static final int ROW_ODOMETRY_X = 3;
+    public static final int ROW_ODOMETRY_Y = 4;
+    public static final int ROW_YAW_RATE = 5;
+    public static final int ROW_TAG_COUNT = 6;
+    public static final int ROW_AVG_TAG_DIST = 7;
+    public static final int ROW_TAG_SPAN = 8;
+    public static final int ROW_AVG_TAG_AREA = 9;
+    public static final int ROW_MAX_AMBIGUITY = 10;
+    public static final int ROW_LENGTH = 11;
+
+    private final double[] coefficients;
+    private final double minXYStdDevMeters;
+    private final double innovationScaleMeters;
+    private final double yawRateScaleRadPerSec;
+    private final double thetaStdDev;
+
+    // 特徴量の作業配列
+    private final double[] features = new double[FEATURE_COUNT];
+
+    public TagStatisticsStdDevModel(VisionGateConfig config) {
+        this.coefficients = config.getStdDevModelCoefficients();
+        this.minXYStdDevMeters = config.getMinXYStdDevMeters();
+        this.innovationScaleMeters = config.getInnovationScaleMeters();
+        this.yawRateScaleRadPerSec = config.getYawRateScaleRadPerSec();
+        this.thetaStdDev = config.getThetaStdDev();
+    }
+
+    // 係数だけを変えて、ほかはConstantsの値で作る
+    public TagStatisticsStdDevModel(double[] coefficients) {
+        this(VisionGateConfig.fromConstants().withStdDevModelCoefficients(coefficients));
+    }
+
+    // Constantsの係数で作る
+    public TagStatisticsStdDevModel() {
+        this(VisionGateConfig.fromConstants());
+    }
+
+    // 特徴量をoutへ書き込む (較正ツールと同じ並びを使うこと)
+    public static void features(
+            int tagCount, double avgTagDist, double tagSpan, double avgTagArea, double maxAmbiguity,
+            double[] out) {
+        out[0] = 1.0;
+        out[1] = avgTagDist * avgTagDist;
+        out[2] = maxAmbiguity;
+        out[3] = 1.0 / Math.max(tagCount, 1);
+        out[4] = tagSpan;
+        out[5] = avgTagArea;
+    }
+
+    // 較正用の行をoutへ書き込む
+    public static void writeCalibrationRow(
+            VisionFieldPoseEstimate estimate, Pose2d odometryPose, double yawRateRadPerSec,
+            double[] out) {
+        out[ROW_TIMESTAMP] = estimate.getTimestampSeconds();
+        out[ROW_VISION_X] = estimate.getVisionRobotPoseMeters().getX();
+        out[ROW_VISION_Y] = estimate.getVisionRobotPoseMeters().getY();
+        out[ROW_ODOMETRY_X] = odometryPose.getX();
+        out[ROW_ODOMETRY_Y] = odometryPose.getY();
+        out[ROW_YAW_RATE] = yawRateRadPerSec;
+        out[ROW_TAG_COUNT] = estimate.getNumTags();
+        out[ROW_AVG_TAG_DIST] = estimate.getAvgTagDist();
+        out[ROW_TAG_SPAN] = estimate.getTagSpan();
+        out[ROW_AVG_TAG_AREA] = estimate.getAvgTagArea();
+        out[ROW_MAX_AMBIGUITY] = estimate.getMaxAmbiguity();
+    }
+
+    @Override
+    public void compute(
+            VisionFieldPoseEstimate estimate,
+            double innovationMeters,
+            double yawRateRadPerSec,
+            Matrix<N3, N1> out) {
+        features(
+                estimate.getNumTags(),
+                estimate.getAvgTagDist(),
+                estimate.getTagSpan(),
+                estimate.getAvgTagArea(),
+                estimate.getMaxAmbiguity(),
+                features);
+        double xyStdDev = 0.0;
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            xyStdDev += coefficients[i] * features[i];
+        }
+        xyStdDev = Math.max(xyStdDev, minXYStdDevMeters);
+
+        // 角速度が大きいほど信頼度を下げる
+        xyStdDev *= 1.0 + yawRateRadPerSec / yawRateScaleRadPerSec;
+
+        // ずれによる割り増しは1タグのときだけ。複数タグの推定はずれたオドメトリを引き戻すために
+        // 使うので (VisionPoseAlignerで捨てないのと同じ理由)、ずれで信頼度を下げない。
+        if (estimate.getNumTags() < 2) {
+            xyStdDev *= 1.0 + innovationMeters / innovationScaleMeters;
+        }
+
+        out.set(0, 0, xyStdDev);
+        out.set(1, 0, xyStdDev);
+        out.set(2, 0, thetaStdDev);
+    }
+}
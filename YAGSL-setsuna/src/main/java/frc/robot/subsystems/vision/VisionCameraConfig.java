@@ -0,0 +1,49 @@
+package frc.robot.subsystems.vision;
+
+import frc.robot.lib.limelight.LimelightResultsParser.Section;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+//
+// カメラ1台分の設定。VisionSubsystemはこの設定をカメラの台数分受け取る。
+//
+
+public class VisionCameraConfig {
+    // NTのテーブル名 (Limelightのホスト名)
+    private final String limelightName;
+
+    // ワーカーがNTのキューを確認する周期 (秒)
+    private final double pollPeriodSeconds;
+
+    // JSON結果を別スレッドで解析するセクション (空ならJSONは解析しない)
+    private final Set<Section> jsonSections;
+
+    public VisionCameraConfig(
+            String limelightName, double pollPeriodSeconds, Set<Section> jsonSections) {
+        this.limelightName = limelightName;
+        this.pollPeriodSeconds = pollPeriodSeconds;
+        this.jsonSections = EnumSet.noneOf(Section.class);
+        this.jsonSections.addAll(jsonSections);
+    }
+
+    public VisionCameraConfig(String limelightName, double pollPeriodSeconds) {
+        this(limelightName, pollPeriodSeconds, EnumSet.noneOf(Section.class));
+    }
+
+    public VisionCameraConfig(String limelightName) {
+        this(limelightName, 0.005);
+    }
+
+    public String getLimelightName() {
+        return limelightName;
+    }
+
+    public double getPollPeriodSeconds() {
+        return pollPeriodSeconds;
+    }
+
+    public Set<Section> getJsonSections() {
+        return jsonSections;
+    }
+}
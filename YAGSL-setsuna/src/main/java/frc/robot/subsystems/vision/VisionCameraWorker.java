@@ -0,0 +1,115 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.lib.limelight.LimelightClient;
+import frc.robot.lib.limelight.LimelightHelpers.PoseEstimate;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+//
+// カメラ1台分の受信・展開をメインループとは別スレッド(Notifier)で行うクラス。
+// タグが写っているフレームだけをVisionFieldPoseEstimateに変換して出力キューに積む。
+// 展開までは使い回しのPoseEstimateで行い、オブジェクトを生成するのは
+// キューに積むフレームのPose2dとVisionFieldPoseEstimateだけ。(メインループへ渡すので使い回せない)
+// 出力キューが溢れた分は捨てて、ドロップ数として数える。
+//
+
+public class VisionCameraWorker implements AutoCloseable {
+    // 出力キューの長さ (メインループが数周期止まっても溢れない程度)
+    public static final int OUTPUT_QUEUE_DEPTH = 64;
+
+    private final VisionCameraConfig config;
+    private final LimelightIngestion ingestion;
+    private final ArrayBlockingQueue<VisionFieldPoseEstimate> output =
+            new ArrayBlockingQueue<>(OUTPUT_QUEUE_DEPTH);
+    private final Notifier notifier;
+
+    // 受信したフレーム数
+    private final AtomicLong receivedFrames = new AtomicLong();
+
+    // 出力キューに積んだ推定数
+    private final AtomicLong producedEstimates = new AtomicLong();
+
+    // 出力キューが満杯で捨てた推定数
+    private final AtomicLong droppedEstimates = new AtomicLong();
+
+    public VisionCameraWorker(VisionCameraConfig config, LimelightClient client) {
+        this.config = config;
+        this.ingestion = new LimelightIngestion(client, config.getLimelightName());
+        this.notifier = new Notifier(this::poll);
+        this.notifier.setName("Vision-" + config.getLimelightName());
+    }
+
+    public VisionCameraWorker(VisionCameraConfig config) {
+        this(config, LimelightClient.getDefault());
+    }
+
+    public void start() {
+        notifier.startPeriodic(config.getPollPeriodSeconds());
+    }
+
+    // ワーカースレッドで呼ばれる
+    private void poll() {
+        int frameCount = ingestion.drain();
+        receivedFrames.addAndGet(frameCount);
+        for (int i = 0; i < frameCount; i++) {
+            PoseEstimate mt2 = ingestion.getEstimate(i);
+            if (mt2.tagCount <= 0) {
+                continue;
+            }
+            var estimate =
+                    new VisionFieldPoseEstimate(
+                            mt2.toPose2d(),
+                            mt2.timestampSeconds,
+                            null,
+                            mt2.tagCount,
+                            mt2.avgTagDist,
+                            mt2.tagSpan,
+                            mt2.avgTagArea,
+                            maxAmbiguity(mt2));
+            if (output.offer(estimate)) {
+                producedEstimates.incrementAndGet();
+            } else {
+                droppedEstimates.incrementAndGet();
+            }
+        }
+    }
+
+    // 写っているタグのあいまいさの最大値
+    private static double maxAmbiguity(PoseEstimate estimate) {
+        double max = 0.0;
+        for (int i = 0; i < estimate.rawFiducialCount; i++) {
+            max = Math.max(max, estimate.rawFiducials[i].ambiguity);
+        }
+        return max;
+    }
+
+    // 溜まっている推定を全てoutへ移す。戻り値は移した数。
+    public int drainTo(Collection<VisionFieldPoseEstimate> out) {
+        return output.drainTo(out);
+    }
+
+    public String getLimelightName() {
+        return config.getLimelightName();
+    }
+
+    public long getReceivedFrameCount() {
+        return receivedFrames.get();
+    }
+
+    public long getProducedEstimateCount() {
+        return producedEstimates.get();
+    }
+
+    public long getDroppedEstimateCount() {
+        return droppedEstimates.get();
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+        ingestion.close();
+    }
+}
@@ -7,26 +7,66 @@ import edu.wpi.first.math.numbers.N3;
 
 
 public class VisionFieldPoseEstimate {
-    
+
 
     private final Pose2d visionRobotPoseMeters;
     private final double timestampSeconds;
 
     // 信頼度を標準偏差で表現している。
     private final Matrix<N3, N1> visionMeasurementStdDevs;
-    
+
     private final int numTags;
 
+    // タグの統計 (標準偏差モデルの入力)
+    // タグまでの平均距離 (m)
+    private final double avgTagDist;
+    // タグ同士の最大間隔 (m)
+    private final double tagSpan;
+    // タグの平均面積 (画像に占める%)
+    private final double avgTagArea;
+    // タグごとのあいまいさの最大値 (0~1)
+    private final double maxAmbiguity;
+
     public VisionFieldPoseEstimate(
         Pose2d visionRobotPoseMeters,
         double timestampSeconds,
         Matrix<N3, N1> visionMeasurementStdDev,
         int numTags
+    ) {
+        this(visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDev, numTags, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    public VisionFieldPoseEstimate(
+        Pose2d visionRobotPoseMeters,
+        double timestampSeconds,
+        Matrix<N3, N1> visionMeasurementStdDev,
+        int numTags,
+        double avgTagDist,
+        double tagSpan,
+        double avgTagArea,
+        double maxAmbiguity
     ) {
         this.visionRobotPoseMeters = visionRobotPoseMeters;
         this.timestampSeconds = timestampSeconds;
         this.visionMeasurementStdDevs = visionMeasurementStdDev;
         this.numTags = numTags;
+        this.avgTagDist = avgTagDist;
+        this.tagSpan = tagSpan;
+        this.avgTagArea = avgTagArea;
+        this.maxAmbiguity = maxAmbiguity;
+    }
+
+    // 標準偏差だけを差し替えたコピー
+    public VisionFieldPoseEstimate withStdDevs(Matrix<N3, N1> visionMeasurementStdDev) {
+        return new VisionFieldPoseEstimate(
+            visionRobotPoseMeters,
+            timestampSeconds,
+            visionMeasurementStdDev,
+            numTags,
+            avgTagDist,
+            tagSpan,
+            avgTagArea,
+            maxAmbiguity);
     }
 
     public Pose2d getVisionRobotPoseMeters() {
@@ -44,4 +84,20 @@ public class VisionFieldPoseEstimate {
     public int getNumTags() {
         return numTags;
     }
+
+    public double getAvgTagDist() {
+        return avgTagDist;
+    }
+
+    public double getTagSpan() {
+        return tagSpan;
+    }
+
+    public double getAvgTagArea() {
+        return avgTagArea;
+    }
+
+    public double getMaxAmbiguity() {
+        return maxAmbiguity;
+    }
 }
@@ -0,0 +1,135 @@
+package frc.robot.subsystems.vision;
+
+import frc.robot.lib.util.Constants.VisionConstants;
+
+//
+// ビジョン推定の照合(VisionPoseAligner)と標準偏差モデル(TagStatisticsStdDevModel)の定数をまとめたもの。
+// ロボットではfromConstants()の値を使う。リプレイ(tools/BatchReplay)では値を変えたコピーを
+// with〜で作り、タスクごとに別の設定で照合をやり直す。変更できないので複数スレッドで共有してよい。
+//
+
+public final class VisionGateConfig {
+    // この距離(m)以上オドメトリとずれている1タグの推定は捨てる
+    private final double maxSingleTagInnovationMeters;
+
+    // この角速度(rad/s)以上で旋回中のフレームは捨てる
+    private final double maxYawRateRadPerSec;
+
+    // 撮影時刻の前に角速度を見る区間 (s)
+    private final double yawRateLookbackSeconds;
+
+    // 標準偏差モデルの係数 [定数, 距離^2, あいまいさ, 1/枚数, 間隔, 面積]
+    private final double[] stdDevModelCoefficients;
+
+    // XYの標準偏差の下限 (m)
+    private final double minXYStdDevMeters;
+
+    // ずれ(m)・角速度(rad/s)がこの値のとき標準偏差を2倍にする
+    private final double innovationScaleMeters;
+    private final double yawRateScaleRadPerSec;
+
+    // 向きの標準偏差
+    private final double thetaStdDev;
+
+    public VisionGateConfig(
+            double maxSingleTagInnovationMeters,
+            double maxYawRateRadPerSec,
+            double yawRateLookbackSeconds,
+            double[] stdDevModelCoefficients,
+            double minXYStdDevMeters,
+            double innovationScaleMeters,
+            double yawRateScaleRadPerSec,
+            double thetaStdDev) {
+        if (stdDevModelCoefficients.length != TagStatisticsStdDevModel.FEATURE_COUNT) {
+            throw new IllegalArgumentException(
+                    "Expected " + TagStatisticsStdDevModel.FEATURE_COUNT + " coefficients, got "
+                            + stdDevModelCoefficients.length);
+        }
+        this.maxSingleTagInnovationMeters = maxSingleTagInnovationMeters;
+        this.maxYawRateRadPerSec = maxYawRateRadPerSec;
+        this.yawRateLookbackSeconds = yawRateLookbackSeconds;
+        this.stdDevModelCoefficients = stdDevModelCoefficients.clone();
+        this.minXYStdDevMeters = minXYStdDevMeters;
+        this.innovationScaleMeters = innovationScaleMeters;
+        this.yawRateScaleRadPerSec = yawRateScaleRadPerSec;
+        this.thetaStdDev = thetaStdDev;
+    }
+
+    // Constants.VisionConstantsの値で作る
+    public static VisionGateConfig fromConstants() {
+        return new VisionGateConfig(
+                VisionConstants.maxSingleTagInnovationMeters,
+                VisionConstants.maxYawRateRadPerSec,
+                VisionConstants.yawRateLookbackSeconds,
+                VisionConstants.stdDevModelCoefficients,
+                VisionConstants.minXYStdDevMeters,
+                VisionConstants.innovationScaleMeters,
+                VisionConstants.yawRateScaleRadPerSec,
+                VisionConstants.megaTag2ThetaStdDev);
+    }
+
+    public VisionGateConfig withMaxSingleTagInnovationMeters(double value) {
+        return new VisionGateConfig(
+                value, maxYawRateRadPerSec, yawRateLookbackSeconds, stdDevModelCoefficients,
+                minXYStdDevMeters, innovationScaleMeters, yawRateScaleRadPerSec, thetaStdDev);
+    }
+
+    public VisionGateConfig withMaxYawRateRadPerSec(double value) {
+        return new VisionGateConfig(
+                maxSingleTagInnovationMeters, value, yawRateLookbackSeconds, stdDevModelCoefficients,
+                minXYStdDevMeters, innovationScaleMeters, yawRateScaleRadPerSec, thetaStdDev);
+    }
+
+    public VisionGateConfig withStdDevModelCoefficients(double[] value) {
+        return new VisionGateConfig(
+                maxSingleTagInnovationMeters, maxYawRateRadPerSec, yawRateLookbackSeconds, value,
+                minXYStdDevMeters, innovationScaleMeters, yawRateScaleRadPerSec, thetaStdDev);
+    }
+
+    public VisionGateConfig withMinXYStdDevMeters(double value) {
+        return new VisionGateConfig(
+                maxSingleTagInnovationMeters, maxYawRateRadPerSec, yawRateLookbackSeconds,
+                stdDevModelCoefficients, value, innovationScaleMeters, yawRateScaleRadPerSec,
+                thetaStdDev);
+    }
+
+    public VisionGateConfig withInnovationScaleMeters(double value) {
+        return new VisionGateConfig(
+                maxSingleTagInnovationMeters, maxYawRateRadPerSec, yawRateLookbackSeconds,
+                stdDevModelCoefficients, minXYStdDevMeters, value, yawRateScaleRadPerSec,
+                thetaStdDev);
+    }
+
+    public double getMaxSingleTagInnovationMeters() {
+        return maxSingleTagInnovationMeters;
+    }
+
+    public double getMaxYawRateRadPerSec() {
+        return maxYawRateRadPerSec;
+    }
+
+    public double getYawRateLookbackSeconds() {
+        return yawRateLookbackSeconds;
+    }
+
+    // 係数のコピーを返す
+    public double[] getStdDevModelCoefficients() {
+        return stdDevModelCoefficients.clone();
+    }
+
+    public double getMinXYStdDevMeters() {
+        return minXYStdDevMeters;
+    }
+
+    public double getInnovationScaleMeters() {
+        return innovationScaleMeters;
+    }
+
+    public double getYawRateScaleRadPerSec() {
+        return yawRateScaleRadPerSec;
+    }
+
+    public double getThetaStdDev() {
+        return thetaStdDev;
+    }
+}
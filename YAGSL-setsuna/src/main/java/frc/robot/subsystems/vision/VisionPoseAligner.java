@@ -0,0 +1,159 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.RobotState;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+//
+// ビジョン推定を撮影時刻のオドメトリ姿勢と照合する段。
+// RobotStateの姿勢履歴から撮影時刻の姿勢を補間して取り出し、ビジョン姿勢とのずれ(イノベーション)を求める。
+// ずれが大きい1タグの推定や、旋回が速すぎるときのフレームは推定器に渡す前に捨て、
+// 残ったものは標準偏差モデルで信頼度を計算して返す。しきい値はVisionGateConfigから受け取る。
+// 返した推定の標準偏差の行列は使い回しているので、次にalignを呼ぶまでに使い切ること。
+// メインループのスレッドからのみ呼ぶこと。
+//
+
+public class VisionPoseAligner {
+    private final RobotState robotState;
+    private final VisionStdDevModel stdDevModel;
+    private final double maxSingleTagInnovationMeters;
+    private final double maxYawRateRadPerSec;
+    private final double yawRateLookbackSeconds;
+
+    // 標準偏差の出力先 (使い回す)
+    private final Matrix<N3, N1> stdDevs = new Matrix<>(Nat.N3(), Nat.N1());
+
+    // 照合したフレームが無い周期に返す空の配列 (長さ0なので共有してよい)
+    private static final double[] kNoCalibrationRows = new double[0];
+
+    // 較正用の行の書き込み先 (使い回す)
+    private final double[] calibrationRow = new double[TagStatisticsStdDevModel.ROW_LENGTH];
+
+    // 前回のdrainCalibrationRows以降に照合したフレームの較正用の行を続けて並べたもの
+    private double[] calibrationRows = new double[8 * TagStatisticsStdDevModel.ROW_LENGTH];
+    private int calibrationRowCount = 0;
+
+    // 撮影時刻が姿勢履歴の範囲外(古すぎる・未来)で捨てた数
+    private long rejectedNoOdometryCount = 0;
+
+    // ずれが大きくて捨てた数
+    private long rejectedInnovationCount = 0;
+
+    // 旋回が速くて捨てた数
+    private long rejectedYawRateCount = 0;
+
+    // 直近に照合した推定のずれ (m)
+    private double lastInnovationMeters = 0.0;
+
+    public VisionPoseAligner(
+            RobotState robotState, VisionGateConfig config, VisionStdDevModel stdDevModel) {
+        this.robotState = robotState;
+        this.stdDevModel = stdDevModel;
+        this.maxSingleTagInnovationMeters = config.getMaxSingleTagInnovationMeters();
+        this.maxYawRateRadPerSec = config.getMaxYawRateRadPerSec();
+        this.yawRateLookbackSeconds = config.getYawRateLookbackSeconds();
+    }
+
+    public VisionPoseAligner(RobotState robotState, VisionGateConfig config) {
+        this(robotState, config, new TagStatisticsStdDevModel(config));
+    }
+
+    // Constantsの値で作る
+    public VisionPoseAligner(RobotState robotState) {
+        this(robotState, VisionGateConfig.fromConstants());
+    }
+
+    // 照合して、採用する推定(標準偏差付き)を返す。捨てる場合はempty。
+    public Optional<VisionFieldPoseEstimate> align(VisionFieldPoseEstimate estimate) {
+        double timestamp = estimate.getTimestampSeconds();
+
+        // 旋回中の判定 (データが無ければNaNなので判定しない)
+        double yawRate =
+                robotState.getMaxAbsDriveYawAngularVelocityInRnage(
+                        timestamp - yawRateLookbackSeconds, timestamp);
+        if (Double.isNaN(yawRate)) {
+            yawRate = 0.0;
+        }
+        yawRate = Math.abs(yawRate);
+        if (yawRate > maxYawRateRadPerSec) {
+            rejectedYawRateCount++;
+            return Optional.empty();
+        }
+
+        // 範囲外の時刻を最古・最新の姿勢と比べると、ずれも較正用の行もでたらめになるので捨てる
+        Optional<Pose2d> odometryPose = robotState.getFieldToRobotInHistory(timestamp);
+        if (odometryPose.isEmpty()) {
+            rejectedNoOdometryCount++;
+            return Optional.empty();
+        }
+
+        double innovation =
+                odometryPose.get()
+                        .getTranslation()
+                        .getDistance(estimate.getVisionRobotPoseMeters().getTranslation());
+        lastInnovationMeters = innovation;
+        TagStatisticsStdDevModel.writeCalibrationRow(
+                estimate, odometryPose.get(), yawRate, calibrationRow);
+        appendCalibrationRow();
+
+        // 複数タグの推定はずれが大きくても捨てない (オドメトリ側がずれたときに戻せなくなるため)
+        // 同じ理由で、標準偏差モデルもずれによる割り増しを1タグのときだけにしている
+        int numTags = estimate.getNumTags();
+        if (numTags < 2 && innovation > maxSingleTagInnovationMeters) {
+            rejectedInnovationCount++;
+            return Optional.empty();
+        }
+
+        stdDevModel.compute(estimate, innovation, yawRate, stdDevs);
+        return Optional.of(estimate.withStdDevs(stdDevs));
+    }
+
+    private void appendCalibrationRow() {
+        int length = TagStatisticsStdDevModel.ROW_LENGTH;
+        if ((calibrationRowCount + 1) * length > calibrationRows.length) {
+            calibrationRows = Arrays.copyOf(calibrationRows, calibrationRows.length * 2);
+        }
+        System.arraycopy(calibrationRow, 0, calibrationRows, calibrationRowCount * length, length);
+        calibrationRowCount++;
+    }
+
+    // 前回のdrainCalibrationRows以降に照合したフレーム数
+    public int getCalibrationRowCount() {
+        return calibrationRowCount;
+    }
+
+    // 前回の呼び出し以降に照合したフレームの較正用の行を古い順に並べた配列を返して空にする。
+    // 1行はTagStatisticsStdDevModel.ROW_LENGTH個の値。照合したフレームが無ければ共有の長さ0の配列。
+    // 返した配列はLoggerなどに渡して保持されてもよいよう、行があるときだけ新しく作る。
+    public double[] drainCalibrationRows() {
+        if (calibrationRowCount == 0) {
+            return kNoCalibrationRows;
+        }
+        int length = calibrationRowCount * TagStatisticsStdDevModel.ROW_LENGTH;
+        double[] rows = Arrays.copyOf(calibrationRows, length);
+        calibrationRowCount = 0;
+        return rows;
+    }
+
+    public long getRejectedNoOdometryCount() {
+        return rejectedNoOdometryCount;
+    }
+
+    public long getRejectedInnovationCount() {
+        return rejectedInnovationCount;
+    }
+
+    public long getRejectedYawRateCount() {
+        return rejectedYawRateCount;
+    }
+
+    public double getLastInnovationMeters() {
+        return lastInnovationMeters;
+    }
+}
@@ -0,0 +1,20 @@
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+//
+// ビジョン推定1フレーム分の信頼度(x, y, θの標準偏差)を決めるモデル。
+// 結果は呼び出し側が使い回している行列に書き込み、フレームごとに行列を生成しない。
+//
+
+public interface VisionStdDevModel {
+    // estimateの標準偏差を計算してoutへ書き込む。
+    // innovationMetersは撮影時刻のオドメトリ姿勢とのずれ、yawRateRadPerSecは撮影前後の最大角速度。
+    void compute(
+            VisionFieldPoseEstimate estimate,
+            double innovationMeters,
+            double yawRateRadPerSec,
+            Matrix<N3, N1> out);
+}
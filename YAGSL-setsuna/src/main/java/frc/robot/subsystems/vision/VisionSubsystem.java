@@ -1,29 +1,153 @@
 package frc.robot.subsystems.vision;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import swervelib.SwerveDrive;
-import frc.robot.lib.util.Constants.VisionConstants;
-import frc.robot.lib.limelight.LimelightHelpers;
+import frc.robot.RobotState;
+import frc.robot.lib.limelight.LimelightClient;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightResults;
+import frc.robot.lib.limelight.LimelightResultsWorker;
+import frc.robot.lib.time.LoopProfiler;
+import frc.robot.replay.ReplayInputRecorder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.littletonrobotics.junction.Logger;
 
 public class VisionSubsystem extends SubsystemBase {
-  private final SwerveDrive swerveDrive;
-  private final String limelightlName = VisionConstants.limelightName;
+  // 推定を撮影時刻順に並べるための比較器
+  private static final Comparator<VisionFieldPoseEstimate> byTimestamp =
+      Comparator.comparingDouble(VisionFieldPoseEstimate::getTimestampSeconds);
+
+  private final RobotState robotState;
+  private final ReplayInputRecorder replayRecorder;
+
+  // 撮影時刻のオドメトリ姿勢との照合
+  private final VisionPoseAligner aligner;
+
+  // カメラごとの受信・展開ワーカー
+  private final VisionCameraWorker[] workers;
+
+  // カメラごとのJSON結果の解析ワーカー (JSONを使わないカメラはnull)
+  private final LimelightResultsWorker[] jsonWorkers;
+
+  // ログのキー (毎周期の文字列連結を避ける)
+  private final String[] receivedKeys;
+  private final String[] producedKeys;
+  private final String[] droppedKeys;
+  private final String[] jsonParsedKeys;
+  private final String[] jsonDroppedKeys;
+  private final String[] jsonParseMsKeys;
+
+  // periodicの処理時間の計測区間
+  private final LoopProfiler profiler = LoopProfiler.getInstance();
+  private final int periodicSection = profiler.registerSection("VisionSubsystem/periodic");
+
+  // 全カメラから集めた推定 (使い回す)
+  private final ArrayList<VisionFieldPoseEstimate> mergedEstimates = new ArrayList<>();
+
+  public VisionSubsystem(
+      RobotState robotState,
+      ReplayInputRecorder replayRecorder,
+      List<VisionCameraConfig> cameras) {
+    this(robotState, replayRecorder, cameras, LimelightClient.getDefault());
+  }
 
-  public VisionSubsystem(SwerveDrive swerve) {
-    this.swerveDrive = swerve;
+  // clientのNTインスタンスからカメラを読む (シミュレーションやテストで別のインスタンスを使うとき)
+  public VisionSubsystem(
+      RobotState robotState,
+      ReplayInputRecorder replayRecorder,
+      List<VisionCameraConfig> cameras,
+      LimelightClient client) {
+    this.robotState = robotState;
+    this.replayRecorder = replayRecorder;
+    this.aligner = new VisionPoseAligner(robotState);
+    this.workers = new VisionCameraWorker[cameras.size()];
+    this.jsonWorkers = new LimelightResultsWorker[cameras.size()];
+    this.receivedKeys = new String[cameras.size()];
+    this.producedKeys = new String[cameras.size()];
+    this.droppedKeys = new String[cameras.size()];
+    this.jsonParsedKeys = new String[cameras.size()];
+    this.jsonDroppedKeys = new String[cameras.size()];
+    this.jsonParseMsKeys = new String[cameras.size()];
+    for (int i = 0; i < workers.length; i++) {
+      String name = cameras.get(i).getLimelightName();
+      workers[i] = new VisionCameraWorker(cameras.get(i), client);
+      receivedKeys[i] = "Vision/" + name + "/ReceivedFrames";
+      producedKeys[i] = "Vision/" + name + "/ProducedEstimates";
+      droppedKeys[i] = "Vision/" + name + "/DroppedEstimates";
+      jsonParsedKeys[i] = "Vision/" + name + "/JsonParsedFrames";
+      jsonDroppedKeys[i] = "Vision/" + name + "/JsonDroppedFrames";
+      jsonParseMsKeys[i] = "Vision/" + name + "/JsonParseMs";
+      workers[i].start();
+      if (!cameras.get(i).getJsonSections().isEmpty()) {
+        jsonWorkers[i] =
+            new LimelightResultsWorker(client, name, cameras.get(i).getJsonSections());
+        jsonWorkers[i].start();
+      }
+    }
+  }
+
+  // 別スレッドで解析した最新のJSON結果。次の周期のperiodicまで有効。
+  // JSONを解析しないカメラや、まだ結果が無いときはempty。
+  public Optional<LimelightResults> getLatestResults(String limelightName) {
+    for (LimelightResultsWorker jsonWorker : jsonWorkers) {
+      if (jsonWorker != null && jsonWorker.getLimelightName().equals(limelightName)) {
+        return Optional.ofNullable(jsonWorker.getLatest());
+      }
+    }
+    return Optional.empty();
   }
 
   @Override
   public void periodic() {
-    // ① YAGSLの「信頼できる見出し角」をLimelightへ送る（毎周期）
-    double yawDeg = this.swerveDrive.getOdometryHeading().getDegrees();
-    LimelightHelpers.SetRobotOrientation(limelightlName, yawDeg, 0, 0, 0, 0, 0);
+    profiler.begin(periodicSection);
+
+    // ① 見出し角の送信とNTのフラッシュはLimelightOutputCoordinatorがループの最初に1回だけ行う
 
-    // ② MegaTag2の推定値（wpiblue）を取得
-    var mt2 = LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(limelightlName);
+    // JSON結果は最新の1つだけ受け取る (途中のフレームはワーカー側で捨てられる)
+    for (LimelightResultsWorker jsonWorker : jsonWorkers) {
+      if (jsonWorker != null) {
+        jsonWorker.refresh();
+      }
+    }
 
-    // ③ タグが見えてる時だけYAGSLへ融合
-    if (mt2.tagCount > 0) {
-      swerveDrive.addVisionMeasurement(mt2.pose, mt2.timestampSeconds);
+    // ② 各カメラのワーカーが展開した推定を集めて撮影時刻順に並べる
+    mergedEstimates.clear();
+    for (VisionCameraWorker worker : workers) {
+      worker.drainTo(mergedEstimates);
     }
+    mergedEstimates.sort(byTimestamp);
+    // リプレイで照合からやり直せるよう、照合前の推定を記録する
+    replayRecorder.logVisionEstimates(mergedEstimates);
+
+    // ③ 古い順に撮影時刻のオドメトリと照合し、残ったものをRobotStateの受け入れ口へ渡す
+    //    （融合済みのフレームや、それより古いフレームはそこで捨てられる）
+    for (VisionFieldPoseEstimate estimate : mergedEstimates) {
+      aligner.align(estimate).ifPresent(robotState::updateMegatagEstimate);
+    }
+
+    for (int i = 0; i < workers.length; i++) {
+      Logger.recordOutput(receivedKeys[i], workers[i].getReceivedFrameCount());
+      Logger.recordOutput(producedKeys[i], workers[i].getProducedEstimateCount());
+      Logger.recordOutput(droppedKeys[i], workers[i].getDroppedEstimateCount());
+      if (jsonWorkers[i] != null) {
+        Logger.recordOutput(jsonParsedKeys[i], jsonWorkers[i].getParsedFrameCount());
+        Logger.recordOutput(jsonDroppedKeys[i], jsonWorkers[i].getDroppedFrameCount());
+        LimelightResults results = jsonWorkers[i].getLatest();
+        if (results != null) {
+          Logger.recordOutput(jsonParseMsKeys[i], results.latency_jsonParse);
+        }
+      }
+    }
+    Logger.recordOutput("Vision/Aligner/RejectedNoOdometry", aligner.getRejectedNoOdometryCount());
+    Logger.recordOutput("Vision/Aligner/RejectedInnovation", aligner.getRejectedInnovationCount());
+    Logger.recordOutput("Vision/Aligner/RejectedYawRate", aligner.getRejectedYawRateCount());
+    Logger.recordOutput("Vision/Aligner/LastInnovationMeters", aligner.getLastInnovationMeters());
+    // 標準偏差モデルの較正用 (tools/VisionStdDevCalibrationで読む)
+    // この周期に照合したフレームの行をすべて1つの配列に並べて出力する (1周期に複数フレーム届くため)
+    Logger.recordOutput("Vision/Aligner/CalibrationFrame", aligner.drainCalibrationRows());
+
+    profiler.end(periodicSection);
   }
-}
\ No newline at end of file
+}
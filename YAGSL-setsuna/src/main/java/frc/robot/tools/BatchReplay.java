@@ -0,0 +1,420 @@
+package frc.robot.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import frc.robot.subsystems.vision.VisionGateConfig;
+import frc.robot.tools.RobotStateReplay.InputLog;
+import frc.robot.tools.RobotStateReplay.Summary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+//
+// たくさんの試合ログ × ビジョン照合の設定を、デスクトップの全コアでまとめてリプレイするツール。
+// ログ1つにつき1タスクで入力を1回だけ読み、そこから設定ごとのタスクに分けてfork-joinのプールで実行する。
+// (タスクの大きさがログの長さでばらつくので、ワークスティーリングで空いたスレッドに回す)
+// 各タスクはRobotState・照合・姿勢推定器を自分で作るので、タスク同士で共有する状態は無い。
+// 結果は設定ごと・ログごとの行としてCSVかJSONに書き、設定ごとの合計をずれのRMSの順に表示する。
+//
+// 使い方:
+//   ./gradlew batchReplay -PbatchArgs="<ログのフォルダ|.wpilog>... [オプション]"
+// オプション (値はカンマ区切りで複数指定でき、全ての組み合わせを試す。省略時はConstantsの値):
+//   --maxSingleTagInnovation=<m,...>  --maxYawRate=<rad/s,...>
+//   --minXYStdDev=<m,...>             --innovationScale=<m,...>
+//   --report=<出力.csv|.json> (既定 replay_report.csv)
+//   --threads=<スレッド数> (既定 全コア)
+//   --writeLogs=<フォルダ> (指定したときだけ、リプレイごとのwpilogを書く)
+//
+
+public final class BatchReplay {
+    // 合計の行のログ名
+    private static final String kAllLogs = "ALL";
+
+    private BatchReplay() {}
+
+    public static void main(String[] args) throws IOException {
+        List<Path> logs = new ArrayList<>();
+        List<VisionGateConfig> configs = List.of(VisionGateConfig.fromConstants());
+        Path report = Path.of("replay_report.csv");
+        Path logOutputDirectory = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                addLogs(Path.of(arg), logs);
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                usage("missing value: " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "maxSingleTagInnovation" ->
+                        configs = expand(configs, value, VisionGateConfig::withMaxSingleTagInnovationMeters);
+                case "maxYawRate" ->
+                        configs = expand(configs, value, VisionGateConfig::withMaxYawRateRadPerSec);
+                case "minXYStdDev" ->
+                        configs = expand(configs, value, VisionGateConfig::withMinXYStdDevMeters);
+                case "innovationScale" ->
+                        configs = expand(configs, value, VisionGateConfig::withInnovationScaleMeters);
+                case "report" -> report = Path.of(value);
+                case "threads" -> threads = Integer.parseInt(value);
+                case "writeLogs" -> logOutputDirectory = Path.of(value);
+                default -> usage("unknown option: " + arg);
+            }
+        }
+        if (logs.isEmpty()) {
+            usage("no .wpilog files given");
+        }
+        if (logOutputDirectory != null) {
+            Files.createDirectories(logOutputDirectory);
+        }
+
+        System.out.printf(
+                Locale.ROOT, "replaying %d logs x %d configs on %d threads%n",
+                logs.size(), configs.size(), threads);
+        long startNanos = System.nanoTime();
+        List<LogTask> tasks = new ArrayList<>();
+        for (Path log : logs) {
+            tasks.add(new LogTask(log, configs, logOutputDirectory));
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Summary> summaries = new ArrayList<>();
+        try {
+            pool.invoke(new BatchTask(tasks));
+        } finally {
+            pool.shutdown();
+        }
+        for (LogTask task : tasks) {
+            summaries.addAll(task.join());
+        }
+        double wallSeconds = (System.nanoTime() - startNanos) * 1e-9;
+
+        // 設定ごとの合計
+        List<VisionGateConfig> finalConfigs = configs;
+        summaries.sort(
+                Comparator.<Summary>comparingInt(s -> finalConfigs.indexOf(s.config))
+                        .thenComparing(s -> s.logName));
+        List<Summary> totals = new ArrayList<>();
+        for (VisionGateConfig config : configs) {
+            totals.add(aggregate(config, summaries.stream().filter(s -> s.config == config).toList()));
+        }
+
+        if (report.toString().endsWith(".json")) {
+            writeJson(report, configs, summaries, totals);
+        } else {
+            writeCsv(report, configs, summaries, totals);
+        }
+
+        double logSeconds = 0.0;
+        for (Summary total : totals) {
+            logSeconds += total.logSeconds;
+        }
+        System.out.printf(
+                Locale.ROOT, "%.0f s of logs replayed in %.1f s (x%.0f)%n",
+                logSeconds, wallSeconds, wallSeconds > 0 ? logSeconds / wallSeconds : 0.0);
+        totals.sort(Comparator.comparingDouble(s -> s.rmsInnovationMeters));
+        for (Summary total : totals) {
+            System.out.printf(
+                    Locale.ROOT,
+                    "config %d: %s -> accepted %d/%d, rms innovation %.3f m, mean pose difference %.3f m%n",
+                    configs.indexOf(total.config),
+                    describe(total.config),
+                    total.acceptedEstimates,
+                    total.visionEstimates,
+                    total.rmsInnovationMeters,
+                    total.meanPoseDifferenceMeters);
+        }
+        System.out.println("wrote " + report);
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println(
+                "usage: BatchReplay <logDir|log.wpilog>... [--maxSingleTagInnovation=a,b] [--maxYawRate=a,b]"
+                        + " [--minXYStdDev=a,b] [--innovationScale=a,b] [--report=out.csv|out.json]"
+                        + " [--threads=n] [--writeLogs=dir]");
+        System.exit(1);
+    }
+
+    // フォルダなら中の.wpilogを全て (リプレイの出力は除く)
+    private static void addLogs(Path path, List<Path> logs) throws IOException {
+        if (!Files.isDirectory(path)) {
+            logs.add(path);
+            return;
+        }
+        try (Stream<Path> files = Files.list(path)) {
+            files.filter(p -> p.toString().endsWith(".wpilog"))
+                    .filter(p -> !p.toString().endsWith("_replay.wpilog"))
+                    .sorted()
+                    .forEach(logs::add);
+        }
+    }
+
+    // 今の設定の一覧と、カンマ区切りの値の全ての組み合わせ
+    private static List<VisionGateConfig> expand(
+            List<VisionGateConfig> configs,
+            String values,
+            BiFunction<VisionGateConfig, Double, VisionGateConfig> with) {
+        List<VisionGateConfig> expanded = new ArrayList<>();
+        for (VisionGateConfig config : configs) {
+            for (String value : values.split(",")) {
+                expanded.add(with.apply(config, Double.parseDouble(value.trim())));
+            }
+        }
+        return expanded;
+    }
+
+    // ---- タスク ----
+
+    // 全てのログのタスクを同時に実行する
+    private static final class BatchTask extends RecursiveTask<Void> {
+        private final List<LogTask> tasks;
+
+        BatchTask(List<LogTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected Void compute() {
+            invokeAll(tasks);
+            return null;
+        }
+    }
+
+    // ログ1つ分。入力を1回だけ読んで、設定ごとのタスクに分ける。
+    private static final class LogTask extends RecursiveTask<List<Summary>> {
+        private final Path path;
+        private final List<VisionGateConfig> configs;
+        private final Path logOutputDirectory;
+
+        LogTask(Path path, List<VisionGateConfig> configs, Path logOutputDirectory) {
+            this.path = path;
+            this.configs = configs;
+            this.logOutputDirectory = logOutputDirectory;
+        }
+
+        @Override
+        protected List<Summary> compute() {
+            InputLog log;
+            try {
+                log = RobotStateReplay.readInputs(path);
+            } catch (IOException e) {
+                // 読めないログ(リプレイ用の入力が無い古いログなど)は飛ばす
+                System.err.println("skipping " + path + ": " + e.getMessage());
+                return List.of();
+            }
+            List<ConfigTask> subtasks = new ArrayList<>();
+            for (int i = 0; i < configs.size(); i++) {
+                Path output = null;
+                if (logOutputDirectory != null) {
+                    Path defaultOutput = RobotStateReplay.defaultOutputPath(path);
+                    String name = defaultOutput.getFileName().toString();
+                    output = logOutputDirectory.resolve(
+                            configs.size() > 1 ? name.replace("_replay", "_config" + i + "_replay") : name);
+                }
+                subtasks.add(new ConfigTask(log, configs.get(i), output));
+            }
+            invokeAll(subtasks);
+            List<Summary> summaries = new ArrayList<>();
+            for (ConfigTask subtask : subtasks) {
+                summaries.add(subtask.join());
+            }
+            return summaries;
+        }
+    }
+
+    // ログ1つ × 設定1つ分のリプレイ
+    private static final class ConfigTask extends RecursiveTask<Summary> {
+        private final InputLog log;
+        private final VisionGateConfig config;
+        private final Path output;
+
+        ConfigTask(InputLog log, VisionGateConfig config, Path output) {
+            this.log = log;
+            this.config = config;
+            this.output = output;
+        }
+
+        @Override
+        protected Summary compute() {
+            long startNanos = System.nanoTime();
+            try (OutputStream stream =
+                            output != null
+                                    ? Files.newOutputStream(output)
+                                    : OutputStream.nullOutputStream();
+                    WpilogWriter writer = new WpilogWriter(stream, "BatchReplay")) {
+                return RobotStateReplay.replay(log, config, writer, startNanos);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ---- 集計と出力 ----
+
+    // 設定1つ分の合計。RMSはフレーム数で重みを付けてまとめ直し、
+    // p95はまとめ直せないのでログごとのp95のフレーム数による加重平均にする。
+    private static Summary aggregate(VisionGateConfig config, List<Summary> summaries) {
+        int driveSamples = 0;
+        int odometryResets = 0;
+        int visionEstimates = 0;
+        int acceptedEstimates = 0;
+        long rejectedYawRate = 0;
+        long rejectedNoOdometry = 0;
+        long rejectedInnovation = 0;
+        int alignedFrames = 0;
+        double sumSquares = 0.0;
+        double p95Sum = 0.0;
+        double poseDifferenceSum = 0.0;
+        double maxPoseDifference = 0.0;
+        double logSeconds = 0.0;
+        double replaySeconds = 0.0;
+        for (Summary s : summaries) {
+            driveSamples += s.driveSamples;
+            odometryResets += s.odometryResets;
+            visionEstimates += s.visionEstimates;
+            acceptedEstimates += s.acceptedEstimates;
+            rejectedYawRate += s.rejectedYawRate;
+            rejectedNoOdometry += s.rejectedNoOdometry;
+            rejectedInnovation += s.rejectedInnovation;
+            alignedFrames += s.alignedFrames;
+            sumSquares += s.rmsInnovationMeters * s.rmsInnovationMeters * s.alignedFrames;
+            p95Sum += s.p95InnovationMeters * s.alignedFrames;
+            poseDifferenceSum += s.meanPoseDifferenceMeters * s.driveSamples;
+            maxPoseDifference = Math.max(maxPoseDifference, s.maxPoseDifferenceMeters);
+            logSeconds += s.logSeconds;
+            replaySeconds += s.replaySeconds;
+        }
+        return new Summary(
+                kAllLogs,
+                config,
+                driveSamples,
+                odometryResets,
+                visionEstimates,
+                acceptedEstimates,
+                rejectedYawRate,
+                rejectedNoOdometry,
+                rejectedInnovation,
+                alignedFrames,
+                alignedFrames > 0 ? Math.sqrt(sumSquares / alignedFrames) : 0.0,
+                alignedFrames > 0 ? p95Sum / alignedFrames : 0.0,
+                driveSamples > 0 ? poseDifferenceSum / driveSamples : 0.0,
+                maxPoseDifference,
+                logSeconds,
+                replaySeconds);
+    }
+
+    private static String describe(VisionGateConfig config) {
+        return String.format(
+                Locale.ROOT,
+                "maxSingleTagInnovation=%.3f maxYawRate=%.3f minXYStdDev=%.3f innovationScale=%.3f",
+                config.getMaxSingleTagInnovationMeters(),
+                config.getMaxYawRateRadPerSec(),
+                config.getMinXYStdDevMeters(),
+                config.getInnovationScaleMeters());
+    }
+
+    // 1行分の値 (CSVの列、JSONのキーと同じ順)
+    private static Map<String, Object> row(int configIndex, Summary s) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("config", configIndex);
+        row.put("maxSingleTagInnovationMeters", s.config.getMaxSingleTagInnovationMeters());
+        row.put("maxYawRateRadPerSec", s.config.getMaxYawRateRadPerSec());
+        row.put("minXYStdDevMeters", s.config.getMinXYStdDevMeters());
+        row.put("innovationScaleMeters", s.config.getInnovationScaleMeters());
+        row.put("log", s.logName);
+        row.put("logSeconds", s.logSeconds);
+        row.put("driveSamples", s.driveSamples);
+        row.put("odometryResets", s.odometryResets);
+        row.put("visionEstimates", s.visionEstimates);
+        row.put("acceptedEstimates", s.acceptedEstimates);
+        row.put("rejectedYawRate", s.rejectedYawRate);
+        row.put("rejectedNoOdometry", s.rejectedNoOdometry);
+        row.put("rejectedInnovation", s.rejectedInnovation);
+        row.put("alignedFrames", s.alignedFrames);
+        row.put("rmsInnovationMeters", s.rmsInnovationMeters);
+        row.put("p95InnovationMeters", s.p95InnovationMeters);
+        row.put("meanPoseDifferenceMeters", s.meanPoseDifferenceMeters);
+        row.put("maxPoseDifferenceMeters", s.maxPoseDifferenceMeters);
+        row.put("replaySeconds", s.replaySeconds);
+        return row;
+    }
+
+    // ログごとの行と、設定ごとの合計の行 (log=ALL)
+    private static void writeCsv(
+            Path path, List<VisionGateConfig> configs, List<Summary> summaries, List<Summary> totals)
+            throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println(String.join(",", row(0, totals.get(0)).keySet()));
+            for (int i = 0; i < configs.size(); i++) {
+                VisionGateConfig config = configs.get(i);
+                for (Summary s : summaries) {
+                    if (s.config == config) {
+                        out.println(csvLine(row(i, s)));
+                    }
+                }
+                out.println(csvLine(row(i, totals.get(i))));
+            }
+        }
+    }
+
+    private static String csvLine(Map<String, Object> row) {
+        StringBuilder line = new StringBuilder();
+        for (Object value : row.values()) {
+            if (line.length() > 0) {
+                line.append(',');
+            }
+            if (value instanceof Double d) {
+                line.append(String.format(Locale.ROOT, "%.6f", d));
+            } else {
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+
+    // {"configs": [{"config": 0, ..., "total": {...}, "logs": [{...}, ...]}, ...]}
+    private static void writeJson(
+            Path path, List<VisionGateConfig> configs, List<Summary> summaries, List<Summary> totals)
+            throws IOException {
+        List<Map<String, Object>> configEntries = new ArrayList<>();
+        for (int i = 0; i < configs.size(); i++) {
+            VisionGateConfig config = configs.get(i);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("config", i);
+            entry.put("maxSingleTagInnovationMeters", config.getMaxSingleTagInnovationMeters());
+            entry.put("maxYawRateRadPerSec", config.getMaxYawRateRadPerSec());
+            entry.put("minXYStdDevMeters", config.getMinXYStdDevMeters());
+            entry.put("innovationScaleMeters", config.getInnovationScaleMeters());
+            entry.put("total", row(i, totals.get(i)));
+            List<Map<String, Object>> logRows = new ArrayList<>();
+            for (Summary s : summaries) {
+                if (s.config == config) {
+                    logRows.add(row(i, s));
+                }
+            }
+            entry.put("logs", logRows);
+            configEntries.add(entry);
+        }
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(path.toFile(), Map.of("configs", configEntries));
+    }
+}
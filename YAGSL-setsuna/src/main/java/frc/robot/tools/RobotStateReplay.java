@@ -0,0 +1,493 @@
+package frc.robot.tools;
+
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.RobotState;
+import frc.robot.replay.ReplayInputs;
+import frc.robot.subsystems.vision.VisionFieldPoseEstimate;
+import frc.robot.subsystems.vision.VisionGateConfig;
+import frc.robot.subsystems.vision.VisionPoseAligner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+//
+// ロボットで記録したwpilogから、RobotStateとビジョンの照合(VisionPoseAligner)をやり直すデスクトップ用ツール。
+// ReplayInputRecorderが残したオドメトリ・IMU・ビジョン推定の入力を、記録された順に
+// 姿勢推定器(WPILibのSwerveDrivePoseEstimator)とRobotStateへ流し、導出した値を新しいwpilogへ書き出す。
+// 待ち時間は無いので実時間よりずっと速く終わる。照合の定数や標準偏差モデルを変えて、
+// 記録済みの試合で結果を比べるために使う。多数のログ・設定をまとめて流すときはtools/BatchReplayを使う。
+// リプレイごとにRobotState・照合・姿勢推定器を新しく作り、静的な状態やNTには触らないので、
+// 別々のスレッドで同時に複数のリプレイを実行してよい。
+//
+// 出力 (AdvantageScopeで元のログと並べて見る):
+//   Replay/FieldToRobot, Replay/RecordedFieldToRobot, Replay/PoseDifferenceMeters
+//   Replay/Vision/... (採用した姿勢、ずれ、捨てた数、較正用の行)
+//   較正用の行はVision/Aligner/CalibrationFrameで終わるキーなので、そのままcalibrateVisionStdDevsで読める。
+//
+// 使い方:
+//   ./gradlew replayRobotState -PreplayLog=<入力.wpilog> [-PreplayOutput=<出力.wpilog>]
+//
+
+public final class RobotStateReplay {
+    private static final int kDriveEvent = 0;
+    private static final int kVisionEvent = 1;
+
+    // 同じ周期に記録された行は、ロボットと同じく走行 → ビジョンの順に流す
+    private static final Comparator<InputEvent> byLogTime =
+            Comparator.<InputEvent>comparingLong(e -> e.logTimestampMicros)
+                    .thenComparingInt(e -> e.kind);
+
+    private RobotStateReplay() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: RobotStateReplay <input.wpilog> [output.wpilog]");
+            System.exit(1);
+        }
+        Path input = Path.of(args[0]);
+        Path output = args.length >= 2 ? Path.of(args[1]) : defaultOutputPath(input);
+
+        Summary summary = replay(input, output);
+        System.out.println(summary.format());
+        System.out.println("wrote " + output);
+    }
+
+    // 入力と同じ場所に "<名前>_replay.wpilog" を作る
+    public static Path defaultOutputPath(Path input) {
+        String name = input.getFileName().toString();
+        if (name.endsWith(".wpilog")) {
+            name = name.substring(0, name.length() - ".wpilog".length());
+        }
+        return input.resolveSibling(name + "_replay.wpilog");
+    }
+
+    // 1つのログをConstantsの設定でリプレイして出力を書き、集計を返す
+    public static Summary replay(Path input, Path output) throws IOException {
+        long startNanos = System.nanoTime();
+        InputLog log = readInputs(input);
+        try (WpilogWriter writer = new WpilogWriter(output, "RobotStateReplay")) {
+            return replay(log, VisionGateConfig.fromConstants(), writer, startNanos);
+        }
+    }
+
+    // 読み込み済みの入力を指定の設定でリプレイする (logは書き換えないので複数のスレッドで共有してよい)
+    static Summary replay(InputLog log, VisionGateConfig config, WpilogWriter writer, long startNanos)
+            throws IOException {
+        Replayer replayer = new Replayer(log.moduleTranslations, config, writer);
+        for (InputEvent event : log.events) {
+            if (event.kind == kDriveEvent) {
+                replayer.processDriveRows(event.rows);
+            } else {
+                replayer.processVisionRows(event.rows);
+            }
+        }
+        return replayer.summarize(log.name, config, (System.nanoTime() - startNanos) * 1e-9);
+    }
+
+    // ---- 入力の読み込み ----
+
+    private static final class InputEvent {
+        final long logTimestampMicros;
+        final int kind;
+        final double[] rows;
+
+        InputEvent(long logTimestampMicros, int kind, double[] rows) {
+            this.logTimestampMicros = logTimestampMicros;
+            this.kind = kind;
+            this.rows = rows;
+        }
+    }
+
+    static final class InputLog {
+        final String name;
+        Translation2d[] moduleTranslations;
+        final List<InputEvent> events = new ArrayList<>();
+
+        InputLog(String name) {
+            this.name = name;
+        }
+    }
+
+    static InputLog readInputs(Path path) throws IOException {
+        DataLogReader reader = new DataLogReader(path.toString());
+        if (!reader.isValid()) {
+            throw new IOException("not a valid wpilog: " + path);
+        }
+        int moduleEntry = -1;
+        int driveEntry = -1;
+        int visionEntry = -1;
+        InputLog log = new InputLog(path.getFileName().toString());
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                var start = record.getStartData();
+                if (!start.type.equals("double[]")) {
+                    continue;
+                }
+                if (start.name.endsWith(ReplayInputs.kModuleTranslationsKey)) {
+                    moduleEntry = start.entry;
+                } else if (start.name.endsWith(ReplayInputs.kDriveRowsKey)) {
+                    driveEntry = start.entry;
+                } else if (start.name.endsWith(ReplayInputs.kVisionRowsKey)) {
+                    visionEntry = start.entry;
+                }
+                continue;
+            }
+            if (record.isControl()) {
+                continue;
+            }
+            int entry = record.getEntry();
+            if (entry == moduleEntry) {
+                double[] values = record.getDoubleArray();
+                Translation2d[] translations = new Translation2d[values.length / 2];
+                for (int i = 0; i < translations.length; i++) {
+                    translations[i] = new Translation2d(values[2 * i], values[2 * i + 1]);
+                }
+                log.moduleTranslations = translations;
+            } else if (entry == driveEntry) {
+                log.events.add(new InputEvent(record.getTimestamp(), kDriveEvent, record.getDoubleArray()));
+            } else if (entry == visionEntry) {
+                log.events.add(new InputEvent(record.getTimestamp(), kVisionEvent, record.getDoubleArray()));
+            }
+        }
+        if (log.moduleTranslations == null || log.moduleTranslations.length == 0) {
+            throw new IOException("no " + ReplayInputs.kModuleTranslationsKey + " in " + path
+                    + " (recorded before replay inputs were logged?)");
+        }
+        log.events.sort(byLogTime);
+        return log;
+    }
+
+    // ---- リプレイ本体 ----
+
+    private static final class Replayer {
+        private final WpilogWriter writer;
+        private final SwerveDriveKinematics kinematics;
+        private final int moduleCount;
+        private final int driveRowLength;
+
+        private final RobotState robotState;
+        private final VisionPoseAligner aligner;
+        private SwerveDrivePoseEstimator poseEstimator;
+
+        // リセットのときに使う直前のジャイロとモジュールの位置
+        private Rotation2d lastGyroYaw;
+        private SwerveModulePosition[] lastModulePositions;
+
+        // 出力のエントリ
+        private final int fieldToRobotEntry;
+        private final int recordedFieldToRobotEntry;
+        private final int poseDifferenceEntry;
+        private final int acceptedPoseEntry;
+        private final int innovationEntry;
+        private final int calibrationFrameEntry;
+        private final int acceptedCountEntry;
+        private final int rejectedYawRateEntry;
+        private final int rejectedNoOdometryEntry;
+        private final int rejectedInnovationEntry;
+
+        // 出力の時刻 (マイクロ秒)。ビジョンの出力は直前のオドメトリの時刻に揃える。
+        private long nowMicros = 0;
+        private final double[] poseArray = new double[3];
+
+        private int driveSamples = 0;
+        private int odometryResets = 0;
+        private int visionEstimates = 0;
+        private int acceptedEstimates = 0;
+        private double poseDifferenceSum = 0.0;
+        private double maxPoseDifference = 0.0;
+        // 照合まで進んだフレームのずれ (m)
+        private double[] innovations = new double[256];
+        private int alignedFrames = 0;
+        private double firstTimestamp = Double.NaN;
+        private double lastTimestamp = Double.NaN;
+
+        Replayer(Translation2d[] moduleTranslations, VisionGateConfig config, WpilogWriter writer)
+                throws IOException {
+            this.writer = writer;
+            this.kinematics = new SwerveDriveKinematics(moduleTranslations);
+            this.moduleCount = moduleTranslations.length;
+            this.driveRowLength = ReplayInputs.driveRowLength(moduleCount);
+            // 実機のログなので、ヨー角速度はシミュレーションの代用ではなくIMUの履歴を使う
+            this.robotState = new RobotState(this::addVisionMeasurement, true);
+            this.aligner = new VisionPoseAligner(robotState, config);
+
+            fieldToRobotEntry = writer.start("Replay/FieldToRobot", "double[]", 0);
+            recordedFieldToRobotEntry = writer.start("Replay/RecordedFieldToRobot", "double[]", 0);
+            poseDifferenceEntry = writer.start("Replay/PoseDifferenceMeters", "double", 0);
+            acceptedPoseEntry = writer.start("Replay/Vision/AcceptedPose", "double[]", 0);
+            innovationEntry = writer.start("Replay/Vision/Aligner/LastInnovationMeters", "double", 0);
+            calibrationFrameEntry =
+                    writer.start("Replay/Vision/Aligner/CalibrationFrame", "double[]", 0);
+            acceptedCountEntry = writer.start("Replay/Vision/AcceptedEstimates", "int64", 0);
+            rejectedYawRateEntry = writer.start("Replay/Vision/Aligner/RejectedYawRate", "int64", 0);
+            rejectedNoOdometryEntry =
+                    writer.start("Replay/Vision/Aligner/RejectedNoOdometry", "int64", 0);
+            rejectedInnovationEntry =
+                    writer.start("Replay/Vision/Aligner/RejectedInnovation", "int64", 0);
+        }
+
+        // RobotStateが採用した推定を姿勢推定器へ融合する (SwerveSubsystem.addVisionMeasurementと同じ)
+        private void addVisionMeasurement(VisionFieldPoseEstimate estimate) {
+            if (poseEstimator == null) {
+                return;
+            }
+            if (estimate.getVisionMeasurementsStdDevs() != null) {
+                poseEstimator.addVisionMeasurement(
+                        estimate.getVisionRobotPoseMeters(),
+                        estimate.getTimestampSeconds(),
+                        estimate.getVisionMeasurementsStdDevs());
+            } else {
+                poseEstimator.addVisionMeasurement(
+                        estimate.getVisionRobotPoseMeters(), estimate.getTimestampSeconds());
+            }
+        }
+
+        void processDriveRows(double[] rows) throws IOException {
+            for (int offset = 0; offset + driveRowLength <= rows.length; offset += driveRowLength) {
+                if (rows[offset + ReplayInputs.DRIVE_KIND] == ReplayInputs.KIND_RESET) {
+                    processReset(rows, offset);
+                } else {
+                    processSample(rows, offset);
+                }
+            }
+        }
+
+        private void processReset(double[] rows, int offset) {
+            odometryResets++;
+            // 最初のサンプルより前のリセットは、最初のサンプルの姿勢で初期化されるので無視する
+            if (poseEstimator != null) {
+                poseEstimator.resetPosition(
+                        lastGyroYaw,
+                        lastModulePositions,
+                        ReplayInputs.readPose(rows, offset + ReplayInputs.DRIVE_POSE_X));
+            }
+        }
+
+        private void processSample(double[] rows, int offset) throws IOException {
+            double timestamp = rows[offset + ReplayInputs.DRIVE_TIMESTAMP];
+            Pose2d recordedPose = ReplayInputs.readPose(rows, offset + ReplayInputs.DRIVE_POSE_X);
+            lastGyroYaw = new Rotation2d(rows[offset + ReplayInputs.DRIVE_GYRO_YAW]);
+            lastModulePositions = ReplayInputs.readModulePositions(rows, offset, moduleCount);
+
+            Pose2d pose;
+            if (poseEstimator == null) {
+                poseEstimator =
+                        new SwerveDrivePoseEstimator(
+                                kinematics, lastGyroYaw, lastModulePositions, recordedPose);
+                pose = recordedPose;
+            } else {
+                pose = poseEstimator.updateWithTime(timestamp, lastGyroYaw, lastModulePositions);
+            }
+
+            // OdometryThread.updateと同じ順で書き込む
+            double yawRate = rows[offset + ReplayInputs.DRIVE_YAW_RATE];
+            ChassisSpeeds measuredFieldRelative =
+                    ReplayInputs.readSpeeds(rows, offset + ReplayInputs.DRIVE_MEASURED_FIELD);
+            robotState.addOdometryMeasurement(timestamp, pose);
+            robotState.addDriveMotionMeasurements(
+                    timestamp,
+                    rows[offset + ReplayInputs.DRIVE_ROLL_RATE],
+                    rows[offset + ReplayInputs.DRIVE_PITCH_RATE],
+                    yawRate,
+                    rows[offset + ReplayInputs.DRIVE_PITCH],
+                    rows[offset + ReplayInputs.DRIVE_ROLL],
+                    rows[offset + ReplayInputs.DRIVE_ACCEL_X],
+                    rows[offset + ReplayInputs.DRIVE_ACCEL_Y],
+                    ReplayInputs.readSpeeds(rows, offset + ReplayInputs.DRIVE_DESIRED_ROBOT),
+                    ReplayInputs.readSpeeds(rows, offset + ReplayInputs.DRIVE_DESIRED_FIELD),
+                    ReplayInputs.readSpeeds(rows, offset + ReplayInputs.DRIVE_MEASURED_ROBOT),
+                    measuredFieldRelative,
+                    new ChassisSpeeds(
+                            measuredFieldRelative.vxMetersPerSecond,
+                            measuredFieldRelative.vyMetersPerSecond,
+                            yawRate));
+
+            driveSamples++;
+            if (Double.isNaN(firstTimestamp)) {
+                firstTimestamp = timestamp;
+            }
+            lastTimestamp = timestamp;
+            double difference = pose.getTranslation().getDistance(recordedPose.getTranslation());
+            poseDifferenceSum += difference;
+            maxPoseDifference = Math.max(maxPoseDifference, difference);
+
+            nowMicros = (long) (timestamp * 1e6);
+            writer.appendDoubleArray(fieldToRobotEntry, toArray(pose), nowMicros);
+            writer.appendDoubleArray(recordedFieldToRobotEntry, toArray(recordedPose), nowMicros);
+            writer.appendDouble(poseDifferenceEntry, difference, nowMicros);
+        }
+
+        // VisionSubsystem.periodicと同じく、撮影時刻順に照合してRobotStateの受け入れ口へ渡す
+        void processVisionRows(double[] rows) throws IOException {
+            for (int offset = 0;
+                    offset + ReplayInputs.VISION_ROW_LENGTH <= rows.length;
+                    offset += ReplayInputs.VISION_ROW_LENGTH) {
+                visionEstimates++;
+                int alignedBefore = aligner.getCalibrationRowCount();
+                Optional<VisionFieldPoseEstimate> aligned =
+                        aligner.align(ReplayInputs.readVisionEstimate(rows, offset));
+                if (aligned.isPresent() && robotState.updateMegatagEstimate(aligned.get())) {
+                    acceptedEstimates++;
+                    writer.appendDoubleArray(
+                            acceptedPoseEntry,
+                            toArray(aligned.get().getVisionRobotPoseMeters()),
+                            nowMicros);
+                }
+
+                // 照合まで進んだフレームだけ、ずれと較正用の行が更新される
+                if (aligner.getCalibrationRowCount() > alignedBefore) {
+                    addInnovation(aligner.getLastInnovationMeters());
+                    writer.appendDouble(innovationEntry, aligner.getLastInnovationMeters(), nowMicros);
+                }
+            }
+            // ロボットと同じく、1周期分の較正用の行を1つの配列で出力する
+            writer.appendDoubleArray(calibrationFrameEntry, aligner.drainCalibrationRows(), nowMicros);
+            writer.appendInteger(acceptedCountEntry, acceptedEstimates, nowMicros);
+            writer.appendInteger(rejectedYawRateEntry, aligner.getRejectedYawRateCount(), nowMicros);
+            writer.appendInteger(
+                    rejectedNoOdometryEntry, aligner.getRejectedNoOdometryCount(), nowMicros);
+            writer.appendInteger(
+                    rejectedInnovationEntry, aligner.getRejectedInnovationCount(), nowMicros);
+        }
+
+        private void addInnovation(double innovation) {
+            if (alignedFrames == innovations.length) {
+                innovations = Arrays.copyOf(innovations, innovations.length * 2);
+            }
+            innovations[alignedFrames++] = innovation;
+        }
+
+        private double[] toArray(Pose2d pose) {
+            poseArray[0] = pose.getX();
+            poseArray[1] = pose.getY();
+            poseArray[2] = pose.getRotation().getRadians();
+            return poseArray;
+        }
+
+        Summary summarize(String logName, VisionGateConfig config, double replaySeconds) {
+            double[] sorted = Arrays.copyOf(innovations, alignedFrames);
+            Arrays.sort(sorted);
+            double sumSquares = 0.0;
+            for (double innovation : sorted) {
+                sumSquares += innovation * innovation;
+            }
+            return new Summary(
+                    logName,
+                    config,
+                    driveSamples,
+                    odometryResets,
+                    visionEstimates,
+                    acceptedEstimates,
+                    aligner.getRejectedYawRateCount(),
+                    aligner.getRejectedNoOdometryCount(),
+                    aligner.getRejectedInnovationCount(),
+                    alignedFrames,
+                    alignedFrames > 0 ? Math.sqrt(sumSquares / alignedFrames) : 0.0,
+                    alignedFrames > 0 ? sorted[(int) Math.floor(0.95 * (alignedFrames - 1))] : 0.0,
+                    driveSamples > 0 ? poseDifferenceSum / driveSamples : 0.0,
+                    maxPoseDifference,
+                    driveSamples > 0 ? lastTimestamp - firstTimestamp : 0.0,
+                    replaySeconds);
+        }
+    }
+
+    // ---- 集計 ----
+
+    // 1つのログのリプレイ結果
+    public static final class Summary {
+        public final String logName;
+        public final VisionGateConfig config;
+        public final int driveSamples;
+        public final int odometryResets;
+        public final int visionEstimates;
+        public final int acceptedEstimates;
+        public final long rejectedYawRate;
+        public final long rejectedNoOdometry;
+        public final long rejectedInnovation;
+        // 照合まで進んだフレームの、撮影時刻のオドメトリ姿勢とのずれ (m)
+        public final int alignedFrames;
+        public final double rmsInnovationMeters;
+        public final double p95InnovationMeters;
+        // リプレイした姿勢と記録された姿勢の距離 (m)
+        public final double meanPoseDifferenceMeters;
+        public final double maxPoseDifferenceMeters;
+        // ログに含まれるオドメトリの時間と、リプレイにかかった時間 (s)
+        public final double logSeconds;
+        public final double replaySeconds;
+
+        Summary(
+                String logName,
+                VisionGateConfig config,
+                int driveSamples,
+                int odometryResets,
+                int visionEstimates,
+                int acceptedEstimates,
+                long rejectedYawRate,
+                long rejectedNoOdometry,
+                long rejectedInnovation,
+                int alignedFrames,
+                double rmsInnovationMeters,
+                double p95InnovationMeters,
+                double meanPoseDifferenceMeters,
+                double maxPoseDifferenceMeters,
+                double logSeconds,
+                double replaySeconds) {
+            this.logName = logName;
+            this.config = config;
+            this.driveSamples = driveSamples;
+            this.odometryResets = odometryResets;
+            this.visionEstimates = visionEstimates;
+            this.acceptedEstimates = acceptedEstimates;
+            this.rejectedYawRate = rejectedYawRate;
+            this.rejectedNoOdometry = rejectedNoOdometry;
+            this.rejectedInnovation = rejectedInnovation;
+            this.alignedFrames = alignedFrames;
+            this.rmsInnovationMeters = rmsInnovationMeters;
+            this.p95InnovationMeters = p95InnovationMeters;
+            this.meanPoseDifferenceMeters = meanPoseDifferenceMeters;
+            this.maxPoseDifferenceMeters = maxPoseDifferenceMeters;
+            this.logSeconds = logSeconds;
+            this.replaySeconds = replaySeconds;
+        }
+
+        public String format() {
+            return String.format(
+                    Locale.ROOT,
+                    "%s: %.1f s of log replayed in %.2f s (x%.0f)%n"
+                            + "  odometry samples: %d (resets: %d)%n"
+                            + "  vision estimates: %d, accepted: %d, rejected yaw rate/no odometry/innovation: %d/%d/%d%n"
+                            + "  innovation of %d aligned frames: rms %.3f m, p95 %.3f m%n"
+                            + "  pose difference from recorded: mean %.3f m, max %.3f m",
+                    logName,
+                    logSeconds,
+                    replaySeconds,
+                    replaySeconds > 0 ? logSeconds / replaySeconds : 0.0,
+                    driveSamples,
+                    odometryResets,
+                    visionEstimates,
+                    acceptedEstimates,
+                    rejectedYawRate,
+                    rejectedNoOdometry,
+                    rejectedInnovation,
+                    alignedFrames,
+                    rmsInnovationMeters,
+                    p95InnovationMeters,
+                    meanPoseDifferenceMeters,
+                    maxPoseDifferenceMeters);
+        }
+    }
+}
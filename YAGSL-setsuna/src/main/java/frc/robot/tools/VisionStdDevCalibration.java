@@ -0,0 +1,176 @@
+package frc.robot.tools;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.subsystems.vision.TagStatisticsStdDevModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.ejml.simple.SimpleMatrix;
+
+//
+// ビジョン標準偏差モデル(TagStatisticsStdDevModel)の係数をログから求めるデスクトップ用ツール。
+// ロボットで記録した Vision/Aligner/CalibrationFrame の各フレームについて、
+// (1周期分の行がTagStatisticsStdDevModel.ROW_LENGTHずつ並んだ配列なので、1行ずつに分けて使う)
+// ビジョン姿勢と撮影時刻のオドメトリ姿勢の距離を誤差とみなし、特徴量への最小二乗で係数を当てはめる。
+// 2次元の正規分布では誤差の大きさの平均が σ√(π/2) になるので、誤差を√(π/2)で割った値を目標にする。
+// オドメトリが信頼できる状態(ゆっくり走る・静止して置き直す等)で記録したログを使うこと。
+//
+// 使い方:
+//   ./gradlew calibrateVisionStdDevs -PvisionLog=<.wpilog または .csv> [-PmaxYawRate=<rad/s>]
+//   CSVは1行1フレームで、TagStatisticsStdDevModel.ROW_* の並びの値をカンマ区切りで書く。
+//
+
+public final class VisionStdDevCalibration {
+    private static final String kEntrySuffix = "Vision/Aligner/CalibrationFrame";
+
+    // 旋回中のフレームはオドメトリとの比較に向かないので除く (rad/s)
+    private static final double kDefaultMaxYawRate = 0.5;
+
+    private VisionStdDevCalibration() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: VisionStdDevCalibration <log.wpilog|frames.csv> [maxYawRateRadPerSec]");
+            System.exit(1);
+        }
+        Path path = Path.of(args[0]);
+        double maxYawRate = args.length >= 2 ? Double.parseDouble(args[1]) : kDefaultMaxYawRate;
+
+        List<double[]> rows =
+                path.toString().endsWith(".wpilog") ? readWpilog(path) : readCsv(path);
+        List<double[]> usable = new ArrayList<>();
+        for (double[] row : rows) {
+            if (Math.abs(row[TagStatisticsStdDevModel.ROW_YAW_RATE]) <= maxYawRate
+                    && row[TagStatisticsStdDevModel.ROW_TAG_COUNT] >= 1) {
+                usable.add(row);
+            }
+        }
+        System.out.printf(Locale.ROOT, "frames: %d read, %d usable%n", rows.size(), usable.size());
+        if (usable.size() < TagStatisticsStdDevModel.FEATURE_COUNT * 10) {
+            System.err.println("not enough frames to fit the model");
+            System.exit(2);
+        }
+
+        double[] coefficients = fit(usable);
+        StringBuilder literal = new StringBuilder("{");
+        for (int i = 0; i < coefficients.length; i++) {
+            if (i > 0) {
+                literal.append(", ");
+            }
+            literal.append(String.format(Locale.ROOT, "%.5f", coefficients[i]));
+        }
+        literal.append("}");
+        System.out.println("stdDevModelCoefficients = " + literal + ";");
+    }
+
+    // 係数を最小二乗で求めて、残差のRMSも表示する
+    static double[] fit(List<double[]> rows) {
+        int n = rows.size();
+        int k = TagStatisticsStdDevModel.FEATURE_COUNT;
+        SimpleMatrix a = new SimpleMatrix(n, k);
+        SimpleMatrix b = new SimpleMatrix(n, 1);
+        double[] features = new double[k];
+        double sigmaScale = Math.sqrt(Math.PI / 2.0);
+        for (int i = 0; i < n; i++) {
+            double[] row = rows.get(i);
+            TagStatisticsStdDevModel.features(
+                    (int) row[TagStatisticsStdDevModel.ROW_TAG_COUNT],
+                    row[TagStatisticsStdDevModel.ROW_AVG_TAG_DIST],
+                    row[TagStatisticsStdDevModel.ROW_TAG_SPAN],
+                    row[TagStatisticsStdDevModel.ROW_AVG_TAG_AREA],
+                    row[TagStatisticsStdDevModel.ROW_MAX_AMBIGUITY],
+                    features);
+            for (int j = 0; j < k; j++) {
+                a.set(i, j, features[j]);
+            }
+            double error =
+                    Math.hypot(
+                            row[TagStatisticsStdDevModel.ROW_VISION_X]
+                                    - row[TagStatisticsStdDevModel.ROW_ODOMETRY_X],
+                            row[TagStatisticsStdDevModel.ROW_VISION_Y]
+                                    - row[TagStatisticsStdDevModel.ROW_ODOMETRY_Y]);
+            b.set(i, 0, error / sigmaScale);
+        }
+
+        SimpleMatrix x = a.solve(b);
+        SimpleMatrix residual = a.mult(x).minus(b);
+        System.out.printf(
+                Locale.ROOT,
+                "rms residual: %.4f m%n",
+                Math.sqrt(residual.elementMult(residual).elementSum() / n));
+
+        double[] coefficients = new double[k];
+        for (int j = 0; j < k; j++) {
+            coefficients[j] = x.get(j, 0);
+        }
+        return coefficients;
+    }
+
+    // AdvantageKitのwpilogから較正用の行を読む
+    // (以前の形式は直近の1行を毎周期出していたので、同じ撮影時刻・姿勢の行は1回だけ使う)
+    static List<double[]> readWpilog(Path path) throws IOException {
+        DataLogReader reader = new DataLogReader(path.toString());
+        if (!reader.isValid()) {
+            throw new IOException("not a valid wpilog: " + path);
+        }
+        Set<Integer> entries = new HashSet<>();
+        Set<List<Double>> seen = new HashSet<>();
+        List<double[]> rows = new ArrayList<>();
+        for (DataLogRecord record : reader) {
+            if (record.isStart()) {
+                var start = record.getStartData();
+                if (start.name.endsWith(kEntrySuffix) && start.type.equals("double[]")) {
+                    entries.add(start.entry);
+                }
+                continue;
+            }
+            if (record.isControl() || !entries.contains(record.getEntry())) {
+                continue;
+            }
+            double[] values = record.getDoubleArray();
+            int length = TagStatisticsStdDevModel.ROW_LENGTH;
+            for (int offset = 0; offset + length <= values.length; offset += length) {
+                double[] row = Arrays.copyOfRange(values, offset, offset + length);
+                List<Double> key =
+                        List.of(
+                                row[TagStatisticsStdDevModel.ROW_TIMESTAMP],
+                                row[TagStatisticsStdDevModel.ROW_VISION_X],
+                                row[TagStatisticsStdDevModel.ROW_VISION_Y]);
+                if (seen.add(key)) {
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    // CSVから較正用の行を読む (数値として読めない行は見出しとみなして飛ばす)
+    static List<double[]> readCsv(Path path) throws IOException {
+        List<double[]> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            String[] fields = line.split(",");
+            if (fields.length != TagStatisticsStdDevModel.ROW_LENGTH) {
+                continue;
+            }
+            try {
+                double[] row = new double[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                    row[i] = Double.parseDouble(fields[i].trim());
+                }
+                rows.add(row);
+            } catch (NumberFormatException e) {
+                // 見出し行
+            }
+        }
+        return rows;
+    }
+}
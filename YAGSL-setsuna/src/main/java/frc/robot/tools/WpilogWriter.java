@@ -0,0 +1,116 @@
+package frc.robot.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//
+// デスクトップのツール用の、Javaだけで書いたwpilogの書き込み。
+// WPILibのDataLogはネイティブライブラリが必要なので、ロボットの外(Gradleのタスク)では使わない。
+// 形式はWPILibのwpilog仕様 (バージョン1.0) のとおりで、AdvantageScopeやDataLogReaderで読める。
+// 各レコードはエントリID 4バイト・サイズ 4バイト・時刻 8バイトの固定長ヘッダで書く。
+// 1つのスレッドからのみ使うこと。
+//
+
+public final class WpilogWriter implements AutoCloseable {
+    // ヘッダのビットフィールド: エントリID 4バイト, サイズ 4バイト, 時刻 8バイト
+    private static final int kRecordHeader = 0x3 | (0x3 << 2) | (0x7 << 4);
+    private static final int kControlStart = 0;
+
+    private final OutputStream out;
+    private final ByteBuffer header =
+            ByteBuffer.allocate(1 + 4 + 4 + 8).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer payload = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+    private int nextEntry = 1;
+
+    public WpilogWriter(Path path, String extraHeader) throws IOException {
+        this(Files.newOutputStream(path), extraHeader);
+    }
+
+    // 任意の出力先へ書く (OutputStream.nullOutputStream()なら書き捨て)
+    public WpilogWriter(OutputStream stream, String extraHeader) throws IOException {
+        out = new BufferedOutputStream(stream, 1 << 16);
+        byte[] extra = extraHeader.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer fileHeader = ByteBuffer.allocate(12 + extra.length).order(ByteOrder.LITTLE_ENDIAN);
+        fileHeader.put("WPILOG".getBytes(StandardCharsets.US_ASCII));
+        fileHeader.putShort((short) 0x0100);
+        fileHeader.putInt(extra.length);
+        fileHeader.put(extra);
+        out.write(fileHeader.array());
+    }
+
+    // エントリを開始してIDを返す (型は "double", "double[]", "int64", "boolean" など)
+    public int start(String name, String type, long timestampMicros) throws IOException {
+        int entry = nextEntry++;
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = payload(1 + 4 + 4 + nameBytes.length + 4 + typeBytes.length + 4);
+        buffer.put((byte) kControlStart);
+        buffer.putInt(entry);
+        buffer.putInt(nameBytes.length);
+        buffer.put(nameBytes);
+        buffer.putInt(typeBytes.length);
+        buffer.put(typeBytes);
+        buffer.putInt(0);
+        writeRecord(0, timestampMicros, buffer);
+        return entry;
+    }
+
+    public void appendDouble(int entry, double value, long timestampMicros) throws IOException {
+        ByteBuffer buffer = payload(8);
+        buffer.putDouble(value);
+        writeRecord(entry, timestampMicros, buffer);
+    }
+
+    public void appendInteger(int entry, long value, long timestampMicros) throws IOException {
+        ByteBuffer buffer = payload(8);
+        buffer.putLong(value);
+        writeRecord(entry, timestampMicros, buffer);
+    }
+
+    public void appendBoolean(int entry, boolean value, long timestampMicros) throws IOException {
+        ByteBuffer buffer = payload(1);
+        buffer.put((byte) (value ? 1 : 0));
+        writeRecord(entry, timestampMicros, buffer);
+    }
+
+    public void appendDoubleArray(int entry, double[] values, long timestampMicros)
+            throws IOException {
+        ByteBuffer buffer = payload(8 * values.length);
+        for (double value : values) {
+            buffer.putDouble(value);
+        }
+        writeRecord(entry, timestampMicros, buffer);
+    }
+
+    // 書き込み用のバッファ (使い回し、足りなければ大きくする)
+    private ByteBuffer payload(int size) {
+        if (payload.capacity() < size) {
+            payload = ByteBuffer.allocate(Math.max(size, payload.capacity() * 2))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        payload.clear();
+        return payload;
+    }
+
+    private void writeRecord(int entry, long timestampMicros, ByteBuffer buffer)
+            throws IOException {
+        header.clear();
+        header.put((byte) kRecordHeader);
+        header.putInt(entry);
+        header.putInt(buffer.position());
+        header.putLong(timestampMicros);
+        out.write(header.array(), 0, header.position());
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
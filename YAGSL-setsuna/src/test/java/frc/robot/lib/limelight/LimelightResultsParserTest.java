@@ -0,0 +1,121 @@
+package frc.robot.lib.limelight;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import frc.robot.lib.limelight.LimelightHelpers.LimelightResults;
+import frc.robot.lib.limelight.LimelightResultsParser.Section;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link LimelightResultsParser} produces the same {@link LimelightResults} as the
+ * ObjectMapper path in {@link LimelightHelpers#getLatestResults(String)}, using captured Limelight
+ * JSON dumps.
+ */
+class LimelightResultsParserTest {
+    // Same configuration as LimelightHelpers.getLatestResults
+    private static final ObjectMapper databind =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // Compares results by their JSON fields only, so the pose getters are not serialized
+    private static final ObjectMapper comparer =
+            new ObjectMapper()
+                    .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+                    .setVisibility(PropertyAccessor.FIELD, Visibility.PUBLIC_ONLY);
+
+    private static final String threeTags = fixture("results_three_tags.json");
+    private static final String oneTag = fixture("results_one_tag.json");
+
+    private static String fixture(String name) {
+        try (InputStream in =
+                LimelightResultsParserTest.class.getResourceAsStream("/limelight/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("missing fixture " + name, e);
+        }
+    }
+
+    private static LimelightResults readWithDatabind(String json) throws IOException {
+        return databind.readValue(json, LimelightResults.class);
+    }
+
+    private static JsonNode tree(LimelightResults results) {
+        return comparer.valueToTree(results);
+    }
+
+    @Test
+    void matchesDatabindForEverySection() throws IOException {
+        var parser = new LimelightResultsParser();
+        var out = new LimelightResults();
+
+        assertTrue(parser.parse(threeTags, out));
+
+        assertNull(out.error);
+        assertEquals(tree(readWithDatabind(threeTags)), tree(out));
+        assertEquals(3, out.targets_Fiducials.length);
+        assertEquals(1, out.targets_Detector.length);
+        assertEquals(1, out.targets_Classifier.length);
+        assertEquals(1, out.targets_Barcode.length);
+        assertEquals(4, out.targets_Barcode[0].corners.length);
+    }
+
+    @Test
+    void skippedSectionsAreEmptyAndTheRestMatchesDatabind() throws IOException {
+        var parser = new LimelightResultsParser(EnumSet.of(Section.FIDUCIAL));
+        var out = new LimelightResults();
+
+        assertTrue(parser.parse(threeTags, out));
+
+        // Only the skipped sections differ from the databind result
+        var expected = readWithDatabind(threeTags);
+        expected.targets_Detector = new LimelightHelpers.LimelightTarget_Detector[0];
+        expected.targets_Classifier = new LimelightHelpers.LimelightTarget_Classifier[0];
+        expected.targets_Barcode = new LimelightHelpers.LimelightTarget_Barcode[0];
+        assertEquals(tree(expected), tree(out));
+        assertEquals(3, out.targets_Fiducials.length);
+    }
+
+    @Test
+    void growsThePoolWhenAFrameHasMoreTargetsThanTheLast() throws IOException {
+        var parser = new LimelightResultsParser();
+        var out = new LimelightResults();
+
+        assertTrue(parser.parse(oneTag, out));
+        assertEquals(tree(readWithDatabind(oneTag)), tree(out));
+        var pooledFirstTarget = out.targets_Fiducials[0];
+
+        assertTrue(parser.parse(threeTags, out));
+        assertEquals(tree(readWithDatabind(threeTags)), tree(out));
+        assertSame(pooledFirstTarget, out.targets_Fiducials[0]);
+
+        // Going back to a smaller frame must not leave stale targets or fields behind
+        assertTrue(parser.parse(oneTag, out));
+        assertEquals(tree(readWithDatabind(oneTag)), tree(out));
+        assertEquals(1, out.targets_Fiducials.length);
+        assertEquals(0, out.targets_Barcode.length);
+    }
+
+    @Test
+    void reportsMalformedJsonInError() {
+        var parser = new LimelightResultsParser();
+        var out = new LimelightResults();
+
+        assertFalse(parser.parse(threeTags.substring(0, threeTags.length() / 2), out));
+
+        assertNotNull(out.error);
+        assertTrue(out.error.startsWith("lljson error: "));
+    }
+}
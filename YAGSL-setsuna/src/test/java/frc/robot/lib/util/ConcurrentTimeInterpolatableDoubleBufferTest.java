@@ -0,0 +1,164 @@
+package frc.robot.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentTimeInterpolatableDoubleBufferTest {
+    private static final double kEpsilon = 1e-9;
+
+    // 値 = 時刻 * 10 のサンプルを入れたバッファ
+    private static ConcurrentTimeInterpolatableDoubleBuffer filled(int capacity, double... times) {
+        var buffer = ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(100.0, capacity);
+        for (double time : times) {
+            buffer.addSample(time, time * 10.0);
+        }
+        return buffer;
+    }
+
+    @Test
+    void emptyBufferReturnsDefaults() {
+        var buffer = ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(1.0, 4);
+        assertTrue(buffer.isEmpty());
+        assertEquals(-1.0, buffer.getSample(0.5, -1.0));
+        assertEquals(-1.0, buffer.getLatestValue(-1.0));
+        assertTrue(Double.isNaN(buffer.getLatestTimestamp()));
+    }
+
+    @Test
+    void interpolatesAndClampsToEnds() {
+        var buffer = filled(8, 1.0, 2.0, 3.0);
+        assertEquals(15.0, buffer.getSample(1.5, 0.0), kEpsilon);
+        assertEquals(20.0, buffer.getSample(2.0, 0.0), kEpsilon);
+        // 範囲外は端の値
+        assertEquals(10.0, buffer.getSample(0.0, 0.0), kEpsilon);
+        assertEquals(30.0, buffer.getSample(9.0, 0.0), kEpsilon);
+    }
+
+    @Test
+    void interpolatesAcrossWrapPoint() {
+        // 容量4に6個入れると先頭がリングの途中に来る
+        var buffer = filled(4, 0.0, 1.0, 2.0, 3.0, 4.0, 5.0);
+        assertEquals(4, buffer.size());
+        assertEquals(20.0, buffer.getSample(0.0, 0.0), kEpsilon);
+        assertEquals(35.0, buffer.getSample(3.5, 0.0), kEpsilon);
+        assertEquals(45.0, buffer.getSample(4.5, 0.0), kEpsilon);
+        assertEquals(50.0, buffer.getLatestValue(0.0), kEpsilon);
+        assertEquals(5.0, buffer.getLatestTimestamp(), kEpsilon);
+    }
+
+    @Test
+    void lateInsertWhenFullEvictsOldest() {
+        var buffer = filled(4, 1.0, 2.0, 3.0, 4.0, 5.0);
+        buffer.addSample(3.5, 100.0);
+        assertEquals(4, buffer.size());
+        // 最古の2.0が押し出され、3.5は時刻順の位置に入る
+        assertEquals(30.0, buffer.getSample(0.0, 0.0), kEpsilon);
+        assertEquals(100.0, buffer.getSample(3.5, 0.0), kEpsilon);
+        assertEquals(65.0, buffer.getSample(3.25, 0.0), kEpsilon);
+        assertEquals(50.0, buffer.getLatestValue(0.0), kEpsilon);
+    }
+
+    @Test
+    void lateInsertOlderThanOldestWhenFullIsDropped() {
+        var buffer = filled(4, 1.0, 2.0, 3.0, 4.0);
+        buffer.addSample(0.5, 100.0);
+        assertEquals(4, buffer.size());
+        assertEquals(10.0, buffer.getSample(0.5, 0.0), kEpsilon);
+    }
+
+    @Test
+    void sameTimestampOverwrites() {
+        var buffer = filled(4, 1.0, 2.0, 3.0);
+        buffer.addSample(2.0, -5.0);
+        assertEquals(3, buffer.size());
+        assertEquals(-5.0, buffer.getSample(2.0, 0.0), kEpsilon);
+    }
+
+    @Test
+    void cleanUpDropsSamplesOlderThanHistory() {
+        var buffer = ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(1.0, 16);
+        for (int i = 0; i <= 10; i++) {
+            buffer.addSample(i * 0.25, i);
+        }
+        // 最新2.5秒から1秒以内の1.5, 1.75, 2.0, 2.25, 2.5が残る
+        assertEquals(5, buffer.size());
+        assertEquals(6.0, buffer.getSample(0.0, 0.0), kEpsilon);
+    }
+
+    @Test
+    void aggregatesReturnNoDataOnEmptyBuffer() {
+        var buffer = ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(1.0, 4);
+        assertTrue(Double.isNaN(buffer.getMinInRange(0.0, 1.0)));
+        assertTrue(Double.isNaN(buffer.getMaxInRange(0.0, 1.0)));
+        assertTrue(Double.isNaN(buffer.getMaxAbsInRange(0.0, 1.0)));
+        assertTrue(Double.isNaN(buffer.getMeanInRange(0.0, 1.0)));
+        assertTrue(Double.isNaN(buffer.getIntegralInRange(0.0, 1.0)));
+    }
+
+    @Test
+    void aggregatesReturnNoDataOutsideSamples() {
+        var buffer = filled(8, 1.0, 2.0, 3.0);
+        for (double[] window : new double[][] {{5.0, 6.0}, {-2.0, 0.5}, {1.2, 1.8}, {2.0, 2.0}}) {
+            double min = window[0];
+            double max = window[1];
+            assertTrue(Double.isNaN(buffer.getMinInRange(min, max)));
+            assertTrue(Double.isNaN(buffer.getMaxInRange(min, max)));
+            assertTrue(Double.isNaN(buffer.getMaxAbsInRange(min, max)));
+            assertTrue(Double.isNaN(buffer.getMeanInRange(min, max)));
+        }
+        assertTrue(Double.isNaN(buffer.getIntegralInRange(5.0, 6.0)));
+        assertTrue(Double.isNaN(buffer.getIntegralInRange(-2.0, 0.5)));
+        assertTrue(Double.isNaN(buffer.getIntegralInRange(2.0, 2.0)));
+    }
+
+    @Test
+    void aggregatesUseHalfOpenWindow() {
+        var buffer = filled(8, 1.0, 2.0, 3.0);
+        // maxTimeちょうどのサンプルは含まない
+        assertEquals(10.0, buffer.getMinInRange(1.0, 3.0), kEpsilon);
+        assertEquals(20.0, buffer.getMaxInRange(1.0, 3.0), kEpsilon);
+        assertEquals(15.0, buffer.getMeanInRange(1.0, 3.0), kEpsilon);
+        assertEquals(30.0, buffer.getMaxInRange(1.0, 3.5), kEpsilon);
+    }
+
+    @Test
+    void maxAbsKeepsSignAndPrefersPositiveOnTie() {
+        var buffer = ConcurrentTimeInterpolatableDoubleBuffer.createBuffer(10.0, 8);
+        buffer.addSample(1.0, 2.0);
+        buffer.addSample(2.0, -5.0);
+        buffer.addSample(3.0, 4.0);
+        assertEquals(-5.0, buffer.getMaxAbsInRange(0.0, 4.0), kEpsilon);
+        buffer.addSample(4.0, 5.0);
+        assertEquals(5.0, buffer.getMaxAbsInRange(0.0, 5.0), kEpsilon);
+    }
+
+    @Test
+    void aggregatesWorkAcrossWrapPoint() {
+        var buffer = filled(4, 0.0, 1.0, 2.0, 3.0, 4.0, 5.0);
+        assertEquals(20.0, buffer.getMinInRange(0.0, 10.0), kEpsilon);
+        assertEquals(50.0, buffer.getMaxInRange(0.0, 10.0), kEpsilon);
+        assertEquals(35.0, buffer.getMeanInRange(0.0, 10.0), kEpsilon);
+    }
+
+    @Test
+    void integralIsTrapezoidOverSampledSpan() {
+        var buffer = filled(8, 1.0, 2.0, 3.0);
+        // 10〜30の直線を1〜3秒で積分すると40
+        assertEquals(40.0, buffer.getIntegralInRange(1.0, 3.0), kEpsilon);
+        // 区間の端はサンプル間を補間する: 15〜25を1.5〜2.5秒で積分すると20
+        assertEquals(20.0, buffer.getIntegralInRange(1.5, 2.5), kEpsilon);
+        // サンプルの無い時間は外挿しない
+        assertEquals(40.0, buffer.getIntegralInRange(-5.0, 10.0), kEpsilon);
+        // 2つのサンプルの間だけの区間
+        assertEquals(2.4, buffer.getIntegralInRange(1.1, 1.3), kEpsilon);
+    }
+
+    @Test
+    void integralWorksAcrossWrapPoint() {
+        var buffer = filled(4, 0.0, 1.0, 2.0, 3.0, 4.0, 5.0);
+        // 20〜50の直線を2〜5秒で積分すると105
+        assertEquals(105.0, buffer.getIntegralInRange(0.0, 5.0), kEpsilon);
+    }
+}
@@ -0,0 +1,147 @@
+package frc.robot.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.MathUtil;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class SingleWriterTimeInterpolatableBufferTest {
+    private static final double kEpsilon = 1e-9;
+
+    // 値 = 時刻 * 10 のサンプルを入れたバッファ
+    private static SingleWriterTimeInterpolatableBuffer<Double> filled(
+            int capacity, double... times) {
+        var buffer =
+                SingleWriterTimeInterpolatableBuffer.createBuffer(
+                        MathUtil::interpolate, 100.0, capacity);
+        for (double time : times) {
+            buffer.addSample(time, time * 10.0);
+        }
+        return buffer;
+    }
+
+    @Test
+    void emptyBufferHasNoSamples() {
+        var buffer = filled(4);
+        assertTrue(buffer.getSample(1.0).isEmpty());
+        assertNull(buffer.getLatest());
+        assertTrue(Double.isNaN(buffer.getOldestTimestamp()));
+        assertTrue(Double.isNaN(buffer.getLatestTimestamp()));
+    }
+
+    @Test
+    void interpolatesAndClampsToEnds() {
+        var buffer = filled(8, 1.0, 2.0, 3.0);
+        assertEquals(15.0, buffer.getSample(1.5).get(), kEpsilon);
+        assertEquals(20.0, buffer.getSample(2.0).get(), kEpsilon);
+        assertEquals(10.0, buffer.getSample(0.0).get(), kEpsilon);
+        assertEquals(30.0, buffer.getSample(9.0).get(), kEpsilon);
+    }
+
+    @Test
+    void interpolatesAcrossWrapPoint() {
+        // 容量4に6個入れると先頭がリングの途中に来る
+        var buffer = filled(4, 0.0, 1.0, 2.0, 3.0, 4.0, 5.0);
+        assertEquals(2.0, buffer.getOldestTimestamp(), kEpsilon);
+        assertEquals(5.0, buffer.getLatestTimestamp(), kEpsilon);
+        assertEquals(35.0, buffer.getSample(3.5).get(), kEpsilon);
+        assertEquals(45.0, buffer.getSample(4.5).get(), kEpsilon);
+        assertEquals(50.0, buffer.getLatest().getValue(), kEpsilon);
+    }
+
+    @Test
+    void lateInsertWhenFullEvictsOldest() {
+        var buffer = filled(4, 1.0, 2.0, 3.0, 4.0, 5.0);
+        buffer.addSample(3.5, 100.0);
+        // 最古の2.0が押し出され、3.5は時刻順の位置に入る
+        assertEquals(3.0, buffer.getOldestTimestamp(), kEpsilon);
+        assertEquals(100.0, buffer.getSample(3.5).get(), kEpsilon);
+        assertEquals(65.0, buffer.getSample(3.25).get(), kEpsilon);
+        assertEquals(5.0, buffer.getLatestTimestamp(), kEpsilon);
+    }
+
+    @Test
+    void lateInsertOlderThanOldestWhenFullIsDropped() {
+        var buffer = filled(4, 1.0, 2.0, 3.0, 4.0);
+        buffer.addSample(0.5, 100.0);
+        assertEquals(1.0, buffer.getOldestTimestamp(), kEpsilon);
+        assertEquals(10.0, buffer.getSample(0.5).get(), kEpsilon);
+    }
+
+    @Test
+    void cleanUpAndClear() {
+        var buffer =
+                SingleWriterTimeInterpolatableBuffer.<Double>createBuffer(
+                        MathUtil::interpolate, 1.0, 16);
+        for (int i = 0; i <= 10; i++) {
+            buffer.addSample(i * 0.25, (double) i);
+        }
+        assertEquals(1.5, buffer.getOldestTimestamp(), kEpsilon);
+        buffer.cleanUp(3.0);
+        assertEquals(2.0, buffer.getOldestTimestamp(), kEpsilon);
+        buffer.clear();
+        assertNull(buffer.getLatest());
+        assertTrue(buffer.getSample(2.0).isEmpty());
+    }
+
+    @Test
+    void readersNeverSeeTornSamples() throws InterruptedException {
+        // 整数の時刻に 値 = 時刻 のサンプルを書き続ける。最古付近の時刻 k + 0.25 を読むと、正しい結果は
+        // 補間した k + 0.25 か、読む間に古いサンプルが消えたときの最古の値(整数)のどちらかになる。
+        // 上書き途中のスロットを読むとそれ以外の値になるので、seqlockの読み直しを確かめられる。
+        var buffer =
+                SingleWriterTimeInterpolatableBuffer.<Double>createBuffer(
+                        MathUtil::interpolate, 1e12, 8);
+        buffer.addSample(0.0, 0.0);
+        buffer.addSample(1.0, 1.0);
+        var running = new AtomicBoolean(true);
+        var samplesWritten = new AtomicLong();
+        var reads = new AtomicLong();
+        var mismatches = new AtomicLong();
+
+        Thread writer =
+                new Thread(
+                        () -> {
+                            for (long i = 2; running.get(); i++) {
+                                buffer.addSample(i, (double) i);
+                                samplesWritten.set(i);
+                            }
+                        });
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] =
+                    new Thread(
+                            () -> {
+                                while (running.get()) {
+                                    double latest = buffer.getLatestTimestamp();
+                                    double t = Math.floor(latest - 6.0) + 0.25;
+                                    double value = buffer.getSample(t).get();
+                                    boolean interpolated = value == t;
+                                    boolean clampedToOldest = value > t && value == Math.rint(value);
+                                    if (!interpolated && !clampedToOldest) {
+                                        mismatches.incrementAndGet();
+                                    }
+                                    reads.incrementAndGet();
+                                }
+                            });
+            readers[r].start();
+        }
+        writer.start();
+        Thread.sleep(300);
+        running.set(false);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(samplesWritten.get() > 1000);
+        assertTrue(reads.get() > 1000);
+        assertEquals(0, mismatches.get());
+    }
+}